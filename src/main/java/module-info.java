@@ -3,10 +3,15 @@ module mathward {
     requires java.desktop;
     requires java.management;
     requires jdk.management;
+    requires jdk.jfr;
     requires info.picocli;
     requires me.tongfei.progressbar;
-    requires org.java_websocket;
 
     opens prisoners;
     opens prisoners.gui;
+    opens prisoners.jobs;
+    opens prisoners.cluster;
+    opens prisoners.metrics;
+
+    exports prisoners.metrics;
 }
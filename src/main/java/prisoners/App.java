@@ -1,6 +1,12 @@
 package prisoners;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.OptionalLong;
 import java.util.concurrent.Callable;
+import java.util.function.LongConsumer;
 import java.util.logging.Logger;
 
 import me.tongfei.progressbar.ProgressBar;
@@ -9,6 +15,9 @@ import me.tongfei.progressbar.ProgressBarStyle;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
+import prisoners.cluster.Coordinator;
+import prisoners.cluster.Worker;
+import prisoners.metrics.SimulationMetrics;
 
 /**
  * Modern Java implementation of the 100 Prisoners Problem CLI application.
@@ -38,7 +47,8 @@ import picocli.CommandLine.Option;
         The solution: Each prisoner starts with their own box number and follows the chain
         of hidden numbers. This achieves ~31% success rate instead of virtually impossible odds.
         """,
-    sortOptions = false
+    sortOptions = false,
+    subcommands = Worker.class
 )
 public final class App implements Callable<Integer> {
 
@@ -60,6 +70,59 @@ public final class App implements Callable<Integer> {
     )
     private int attempts = 1000;
 
+    @Option(
+        names = {"-k", "--limit"},
+        description = "Boxes each prisoner may open (default: half of the prisoners).",
+        paramLabel = "COUNT"
+    )
+    private Integer limit;
+
+    @Option(
+        names = {"-s", "--strategy"},
+        description = "Search strategy: chain or random.",
+        defaultValue = "chain",
+        converter = StrategyConverter.class,
+        paramLabel = "NAME"
+    )
+    private Strategy strategy = Strategy.CHAIN_FOLLOWING;
+
+    @Option(
+        names = {"--seed"},
+        description = "Seed for a reproducible run. Seeded results are cached.",
+        paramLabel = "SEED"
+    )
+    private Long seed;
+
+    @Option(
+        names = {"--cache-dir"},
+        description = "Directory where seeded results are cached between runs.",
+        paramLabel = "DIR"
+    )
+    private Path cacheDirectory;
+
+    @Option(
+        names = {"--coordinator"},
+        description = "Distribute the trials to workers (mathward worker --connect HOST:PORT) listening on this port.",
+        paramLabel = "PORT"
+    )
+    private Integer coordinatorPort;
+
+    @Option(
+        names = {"--chunk-size"},
+        description = "Trials per work unit when distributing.",
+        defaultValue = "10000",
+        paramLabel = "COUNT"
+    )
+    private long chunkSize = 10_000;
+
+    @Option(
+        names = {"--result-timeout"},
+        description = "Seconds to wait for a worker's result before handing its work unit to another worker (0 waits forever).",
+        defaultValue = "300",
+        paramLabel = "SECONDS"
+    )
+    private int resultTimeoutSeconds = 300;
+
     @Option(
         names = {"-v", "--verbose"}, 
         description = "Enable verbose output with detailed statistics."
@@ -73,6 +136,8 @@ public final class App implements Callable<Integer> {
 
     @Override
     public Integer call() throws Exception {
+        SimulationMetrics.register();
+
         // Validate inputs using modern switch expressions
         return switch (validateInputs()) {
             case null -> runExperiment();
@@ -99,60 +164,101 @@ public final class App implements Callable<Integer> {
         if (attempts < 1) {
             return "Error: Number of attempts must be positive";
         }
-        if (attempts > 100000) {
-            return "Error: Too many attempts (maximum: 100000)";
+        if (attempts > 100000 && coordinatorPort == null) {
+            return "Error: Too many attempts (maximum: 100000, or use --coordinator)";
+        }
+        if (chunkSize < 1) {
+            return "Error: Chunk size must be positive";
+        }
+        if (resultTimeoutSeconds < 0 || resultTimeoutSeconds > Integer.MAX_VALUE / 1000) {
+            return String.format("Error: Result timeout must be between 0 and %d seconds", Integer.MAX_VALUE / 1000);
+        }
+        if (limit != null && (limit < 1 || limit > numberOfPrisoners)) {
+            return String.format("Error: Boxes per prisoner must be between 1 and %d (got: %d)", numberOfPrisoners, limit);
         }
         return null; // All validations passed
     }
 
     private Integer runExperiment() {
-        var experiment = new FreedomExperiment(numberOfPrisoners);
+        var config = new SimulationConfig(numberOfPrisoners,
+            limit != null ? limit : numberOfPrisoners / 2,
+            strategy,
+            seed != null ? OptionalLong.of(seed) : OptionalLong.empty(),
+            attempts);
 
         // Modern formatted logging
         logger.info(String.format("""
             Starting 100 Prisoners Problem simulation:
             - Prisoners: %d
             - Attempts: %d
-            - Strategy: Optimal chain-following
-            """, numberOfPrisoners, attempts));
+            - Boxes per prisoner: %d
+            - Strategy: %s
+            """, numberOfPrisoners, attempts, config.limit(), describe(strategy)));
 
-        int successes = 0;
-        var progressBarTitle = String.format("Prison escape attempts (%d prisoners)", numberOfPrisoners);
+        var cache = new ResultCache(ResultCache.DEFAULT_MAX_ENTRIES, cacheDirectory);
+        var cached = cache.get(config);
+        SimulationResult result;
+        if (cached.isPresent()) {
+            logger.info(String.format("Using cached result for seed %d", seed));
+            result = cached.get();
+        } else {
+            var progressBarTitle = String.format("Prison escape attempts (%d prisoners)", numberOfPrisoners);
 
-        try (var progressBar = new ProgressBarBuilder()
-                .setStyle(ProgressBarStyle.COLORFUL_UNICODE_BAR)
-                .setTaskName(progressBarTitle)
-                .setInitialMax(attempts)
-                .build()) {
-            
-            for (int i = 0; i < attempts; i++) {
-                if (experiment.run()) {
-                    successes++;
-                }
-                progressBar.step();
+            try (var progressBar = new ProgressBarBuilder()
+                    .setStyle(ProgressBarStyle.COLORFUL_UNICODE_BAR)
+                    .setTaskName(progressBarTitle)
+                    .setInitialMax(attempts)
+                    .build()) {
+                result = coordinatorPort != null
+                        ? runDistributed(config, progressBar::stepBy)
+                        : new SimulationRunner().run(config, progressBar::step);
             }
+            cache.put(result);
         }
 
         // Calculate and display results using modern features
-        var results = new ExperimentResults(attempts, successes, numberOfPrisoners);
+        var results = new ExperimentResults(attempts, (int) result.successes(), numberOfPrisoners,
+            config.exactSuccessProbability() * 100.0);
         displayResults(results);
 
         return 0;
     }
 
+    private SimulationResult runDistributed(SimulationConfig config, LongConsumer onTrials) {
+        try (var serverSocket = new ServerSocket(coordinatorPort)) {
+            logger.info(String.format("Waiting for workers on port %d (mathward worker --connect HOST:%d)",
+                serverSocket.getLocalPort(), serverSocket.getLocalPort()));
+            return new Coordinator(config, chunkSize, resultTimeoutSeconds * 1000).run(serverSocket, onTrials);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for workers", e);
+        }
+    }
+
+    private static String describe(Strategy strategy) {
+        return switch (strategy) {
+            case CHAIN_FOLLOWING -> "Optimal chain-following";
+            case RANDOM -> "Random boxes";
+        };
+    }
+
+    static final class StrategyConverter implements CommandLine.ITypeConverter<Strategy> {
+        @Override
+        public Strategy convert(String value) {
+            return Strategy.parse(value);
+        }
+    }
+
     /**
      * Record for experiment results with computed properties.
      */
-    private record ExperimentResults(int totalAttempts, int successes, int prisoners) {
+    private record ExperimentResults(int totalAttempts, int successes, int prisoners, double theoreticalRate) {
         public double successRate() {
             return totalAttempts > 0 ? (successes * 100.0) / totalAttempts : 0.0;
         }
 
-        public double theoreticalRate() {
-            // Theoretical success rate is approximately 1 - ln(2) ≈ 30.685%
-            return 30.685;
-        }
-
         public String summary() {
             return String.format("""
                 
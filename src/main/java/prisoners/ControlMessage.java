@@ -0,0 +1,110 @@
+package prisoners;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.OptionalInt;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import prisoners.ExperimentSession.Mode;
+import prisoners.ExperimentSession.StartRequest;
+import prisoners.StepProtocol.Format;
+
+/**
+ * A message a WebSocket client sends to control its session, e.g. {@code {"action":"start","prisoners":100}}.
+ *
+ * <p>
+ * Messages are read with a streaming {@link JsonReader} straight into these records, without reflection or an
+ * intermediate map. Unknown fields are skipped; missing ones take their defaults.
+ */
+sealed interface ControlMessage {
+
+    /**
+     * Starts an experiment: format (json or binary), mode (steps, replay or stats), prisoners, trials, credits
+     * and timestamps. Clients that cannot decode binary frames get the JSON fallback; clients that send credits
+     * ask for flow control.
+     */
+    record Start(StartRequest request) implements ControlMessage {
+    }
+
+    record Stop() implements ControlMessage {
+    }
+
+    record Credit(int count) implements ControlMessage {
+    }
+
+    record Speed(Duration delay) implements ControlMessage {
+    }
+
+    record Turbo(boolean enabled) implements ControlMessage {
+    }
+
+    /**
+     * Watches a broadcast room; {@code prisoners} only matters to the viewer who creates it.
+     */
+    record Join(String room, Format format, int prisoners) implements ControlMessage {
+    }
+
+    record Leave() implements ControlMessage {
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code json} is not an object, has a field of the wrong type or names
+     *                                  an unknown action
+     */
+    static ControlMessage parse(String json) {
+        String action = null;
+        String format = "json";
+        String mode = "steps";
+        String room = "";
+        int prisoners = 100;
+        long trials = 1;
+        OptionalInt credits = OptionalInt.empty();
+        boolean timestamps = false;
+        int count = 1;
+        long delay = ExperimentSession.DEFAULT_STEP_DELAY.toMillis();
+        boolean enabled = true;
+
+        try (var reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                var name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "action" -> action = reader.nextString();
+                    case "format" -> format = reader.nextString();
+                    case "mode" -> mode = reader.nextString();
+                    case "room" -> room = reader.nextString().trim();
+                    case "prisoners" -> prisoners = reader.nextInt();
+                    case "trials" -> trials = reader.nextLong();
+                    case "credits" -> credits = OptionalInt.of(reader.nextInt());
+                    case "timestamps" -> timestamps = reader.nextBoolean();
+                    case "count" -> count = reader.nextInt();
+                    case "delay" -> delay = reader.nextLong();
+                    case "enabled" -> enabled = reader.nextBoolean();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e) {
+            throw new IllegalArgumentException("Malformed control message: " + e.getMessage(), e);
+        }
+
+        return switch (String.valueOf(action)) {
+            case "start" -> new Start(new StartRequest(Format.parse(format), Mode.parse(mode), prisoners, trials,
+                credits, timestamps));
+            case "stop" -> new Stop();
+            case "credit" -> new Credit(count);
+            case "speed" -> new Speed(Duration.ofMillis(delay));
+            case "turbo" -> new Turbo(enabled);
+            case "join" -> new Join(room, Format.parse(format), prisoners);
+            case "leave" -> new Leave();
+            default -> throw new IllegalArgumentException("Unknown action: " + action);
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package prisoners;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of the longest cycle of each trial's permutation, in equal-width bins over
+ * {@code [1, prisoners]}. With the chain strategy a trial succeeds exactly when its longest cycle does not
+ * exceed the box limit, so this shows why the success rate is what it is.
+ */
+public final class CycleHistogram implements TrialObserver {
+
+    private final int binWidth;
+    private final AtomicLongArray counts;
+
+    public CycleHistogram(int prisoners, int maxBins) {
+        if (prisoners < 1 || maxBins < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Prisoners and bins must be positive (got: %d, %d)", prisoners, maxBins));
+        }
+        this.binWidth = (prisoners + maxBins - 1) / maxBins;
+        this.counts = new AtomicLongArray((prisoners + binWidth - 1) / binWidth);
+    }
+
+    @Override
+    public void trialFinished(FreedomExperiment experiment, boolean success) {
+        record(experiment.longestCycle());
+    }
+
+    public void record(int longestCycle) {
+        counts.incrementAndGet((longestCycle - 1) / binWidth);
+    }
+
+    /**
+     * Bin {@code i} counts trials whose longest cycle lies in {@code [i * binWidth + 1, (i + 1) * binWidth]}.
+     */
+    public int binWidth() {
+        return binWidth;
+    }
+
+    public long[] snapshot() {
+        var snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+}
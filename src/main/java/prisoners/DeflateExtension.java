@@ -0,0 +1,207 @@
+package prisoners;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import org.eclipse.jetty.util.compression.CompressionPool;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.ExtensionConfig;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.common.OpCode;
+import org.eclipse.jetty.websocket.common.WebSocketFrame;
+import org.eclipse.jetty.websocket.common.extensions.compress.PerMessageDeflateExtension;
+
+import prisoners.metrics.DeliveryMetrics;
+
+/**
+ * permessage-deflate (RFC 7692) for viewers that offer it, which every current browser does, counting the bytes
+ * each connection saves. Step and statistics messages repeat the same keys and small numbers over and over, so
+ * they shrink to a fraction of their size; messages below the threshold are sent as they are, since deflating
+ * a result or a short step costs more CPU than it saves.
+ *
+ * <p>
+ * Jetty creates one instance per connection that negotiates compression; it is tuned through system properties:
+ * {@code prisoners.ws.deflateLevel} (default 1, the fastest), {@code prisoners.ws.deflateThreshold} (in bytes,
+ * default 256), {@code prisoners.ws.deflateServerContextTakeover} (default false) and
+ * {@code prisoners.ws.deflateClientContextTakeover} (default true).
+ *
+ * <p>
+ * Without server context takeover every message stands on its own, so this extension compresses it in one go
+ * with a deflater (about 300 KB of native memory) borrowed from a pool for just that message. The pool follows
+ * the number of threads compressing at once rather than the number of connections, and a room broadcast is
+ * compressed once: the other viewers the sending thread hands the same message to get the same bytes. With
+ * takeover, which compresses repetitive streams somewhat better, Jetty compresses every connection's messages
+ * itself and each connection holds a deflater from its first compressed message until it closes. Disable
+ * compression with {@code -Dprisoners.ws.deflate=false} where the CPU matters more than bandwidth.
+ */
+public class DeflateExtension extends PerMessageDeflateExtension {
+
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("prisoners.ws.deflate", "true"));
+    static final int LEVEL = Integer.getInteger("prisoners.ws.deflateLevel", Deflater.BEST_SPEED);
+    /**
+     * Smallest message worth compressing: a prisoner's steps are a few hundred bytes, a result a few dozen.
+     */
+    static final int THRESHOLD = Integer.getInteger("prisoners.ws.deflateThreshold", 256);
+    static final boolean SERVER_CONTEXT_TAKEOVER =
+        Boolean.parseBoolean(System.getProperty("prisoners.ws.deflateServerContextTakeover", "false"));
+    static final boolean CLIENT_CONTEXT_TAKEOVER =
+        Boolean.parseBoolean(System.getProperty("prisoners.ws.deflateClientContextTakeover", "true"));
+
+    // Checked before the pool is built; the server reads ENABLED when it starts, so a bad value stops it there
+    static {
+        if (LEVEL < Deflater.DEFAULT_COMPRESSION || LEVEL > Deflater.BEST_COMPRESSION || THRESHOLD < 0) {
+            throw new IllegalArgumentException(String.format(
+                "Compression level must be -1 to 9 and the threshold not negative (got: %d, %d)", LEVEL, THRESHOLD));
+        }
+    }
+
+    // Every deflater is created at LEVEL, so borrowed ones never have to be reconfigured
+    private static final DeflaterPool POOL = new DeflaterPool(CompressionPool.INFINITE_CAPACITY, LEVEL, true);
+
+    /**
+     * The last message this thread compressed on its own, so the other viewers of a broadcast are sent the same
+     * bytes instead of compressing it again.
+     */
+    private static final ThreadLocal<Compressed> lastCompressed = new ThreadLocal<>();
+
+    private record Compressed(ByteBuffer payload, byte[] deflated) {
+    }
+
+    private final AtomicLong payloadBytes = new AtomicLong();
+    private final AtomicLong wireBytes = new AtomicLong();
+    // Frames handed to Jetty's compressor that it has not written yet; later messages must queue behind them
+    private final AtomicInteger queuedFrames = new AtomicInteger();
+
+    private volatile boolean serverContextTakeover = true;
+
+    /**
+     * Accepts what the client offered, giving up context takeover where the server is configured not to use it.
+     */
+    @Override
+    public void setConfig(ExtensionConfig config) {
+        var negotiated = new ExtensionConfig(config);
+        if (!SERVER_CONTEXT_TAKEOVER) {
+            negotiated.setParameter("server_no_context_takeover");
+        }
+        if (!CLIENT_CONTEXT_TAKEOVER) {
+            negotiated.setParameter("client_no_context_takeover");
+        }
+        super.setConfig(negotiated);
+        serverContextTakeover = !negotiated.getParameterKeys().contains("server_no_context_takeover");
+    }
+
+    /**
+     * Uses this server's own pool instead of Jetty's, whose deflaters have the default level.
+     */
+    @Override
+    public void setDeflaterPool(DeflaterPool ignored) {
+        super.setDeflaterPool(POOL);
+    }
+
+    /**
+     * Sends messages below the threshold as they are and, without server context takeover, compresses whole
+     * messages here; everything else goes through Jetty's compressor.
+     */
+    @Override
+    public void outgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode) {
+        boolean wholeMessage = frame.isFin()
+            && (frame.getOpCode() == OpCode.TEXT || frame.getOpCode() == OpCode.BINARY);
+        if (frame.getType().isData()) {
+            payloadBytes.addAndGet(frame.getPayloadLength());
+            DeliveryMetrics.get().recordDeflateInput(frame.getPayloadLength());
+        }
+        if (wholeMessage && queuedFrames.get() == 0) {
+            if (frame.getPayloadLength() < THRESHOLD) {
+                send(frame, callback, batchMode);
+                return;
+            }
+            if (!serverContextTakeover) {
+                var compressed = WebSocketFrame.copy(frame).setPayload(ByteBuffer.wrap(deflate(frame.getPayload())));
+                send(compressed.setRsv1(true), callback, batchMode);
+                return;
+            }
+        }
+        queuedFrames.incrementAndGet();
+        super.outgoingFrame(frame, new WriteCallback() {
+            @Override
+            public void writeSuccess() {
+                queuedFrames.decrementAndGet();
+                if (callback != null) {
+                    callback.writeSuccess();
+                }
+            }
+
+            @Override
+            public void writeFailed(Throwable failure) {
+                queuedFrames.decrementAndGet();
+                if (callback != null) {
+                    callback.writeFailed(failure);
+                }
+            }
+        }, batchMode);
+    }
+
+    @Override
+    protected void nextOutgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode) {
+        if (frame.getType().isData()) {
+            wireBytes.addAndGet(frame.getPayloadLength());
+            DeliveryMetrics.get().recordDeflateOutput(frame.getPayloadLength());
+        }
+        super.nextOutgoingFrame(frame, callback, batchMode);
+    }
+
+    /**
+     * Hands a frame straight to the connection, past Jetty's compressor.
+     */
+    private void send(Frame frame, WriteCallback callback, BatchMode batchMode) {
+        wireBytes.addAndGet(frame.getPayloadLength());
+        DeliveryMetrics.get().recordDeflateOutput(frame.getPayloadLength());
+        getNextOutgoing().outgoingFrame(frame, callback, batchMode);
+    }
+
+    /**
+     * Compresses one message without context, as RFC 7692 frames it: flushed, without the trailing empty block.
+     */
+    static byte[] deflate(ByteBuffer payload) {
+        var last = lastCompressed.get();
+        if (last != null && last.payload().equals(payload)) {
+            return last.deflated();
+        }
+        var deflater = POOL.acquire();
+        try {
+            deflater.setInput(payload.slice());
+            var out = new ByteArrayOutputStream(payload.remaining() / 2 + 16);
+            var buffer = new byte[Math.max(64, payload.remaining())];
+            int length;
+            do {
+                length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, length);
+            } while (length == buffer.length);
+            var bytes = out.toByteArray();
+            var deflated = Arrays.copyOf(bytes, bytes.length - TAIL_BYTES.length);
+            lastCompressed.set(new Compressed(payload.slice(), deflated));
+            return deflated;
+        } finally {
+            POOL.release(deflater);
+        }
+    }
+
+    /**
+     * Bytes sent on the wire per byte of message, e.g. 0.25 when messages shrank to a quarter; 1 before
+     * anything was sent.
+     */
+    double compressionRatio() {
+        long payload = payloadBytes.get();
+        return payload == 0 ? 1.0 : (double) wireBytes.get() / payload;
+    }
+
+    long payloadBytes() {
+        return payloadBytes.get();
+    }
+}
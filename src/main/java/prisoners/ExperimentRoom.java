@@ -0,0 +1,215 @@
+package prisoners;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import prisoners.StepProtocol.Format;
+import prisoners.metrics.DeliveryMetrics;
+
+/**
+ * A named channel where one experiment is played to any number of viewers, e.g. a classroom watching the same
+ * demo. A single producer thread runs the trials one after another and encodes every message once per format;
+ * the one encoded message is then queued on every subscriber's connection, so the cost of a room barely grows
+ * with its audience.
+ *
+ * <p>
+ * Viewers cannot slow the room down: the steps are paced at {@link ExperimentSession#DEFAULT_STEP_DELAY}, and a
+ * viewer whose send queue is above {@link ExperimentSession#HIGH_WATERMARK_BYTES} misses messages until it has
+ * caught up, like a live broadcast.
+ *
+ * <p>
+ * The producer starts with the first viewer and is stopped when the last one leaves. Joining and leaving are
+ * expected to be serialized per room by the caller (see {@link FreedomExperimentWebSocketServer}).
+ */
+final class ExperimentRoom {
+
+    static final int MAX_NAME_LENGTH = 64;
+    static final Duration TRIAL_PAUSE = Duration.ofSeconds(3);
+
+    private final String name;
+    private final int prisoners;
+    private final Map<Format, Set<ViewerConnection>> viewers = new EnumMap<>(Format.class);
+    private final MessageEncoder encoder = new MessageEncoder();
+    private Thread producer;
+
+    /**
+     * @throws IllegalArgumentException if the name or the number of prisoners is not valid
+     */
+    ExperimentRoom(String name, int prisoners) {
+        if (name.isBlank() || name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException(String.format(
+                "Room names must have 1 to %d characters (got: %d)", MAX_NAME_LENGTH, name.length()));
+        }
+        if (prisoners > ExperimentSession.MAX_STEP_PRISONERS) {
+            throw new IllegalArgumentException(String.format(
+                "At most %d prisoners in a room", ExperimentSession.MAX_STEP_PRISONERS));
+        }
+        SimulationConfig.classic(prisoners, 1); // rejects odd or too few prisoners
+        this.name = name;
+        this.prisoners = prisoners;
+        for (var format : Format.values()) {
+            viewers.put(format, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    int prisoners() {
+        return prisoners;
+    }
+
+    int viewers() {
+        return viewers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Subscribes a viewer, telling it which room it joined and how many boxes to draw, and starts the producer
+     * if the room was idle.
+     */
+    void join(ViewerConnection conn, Format format) {
+        conn.send(StepProtocol.roomJson(name, prisoners, viewers() + 1));
+        viewers.get(format).add(conn);
+        if (producer == null) {
+            producer = Thread.ofVirtual().name("experiment-room-" + name).start(() -> {
+                try {
+                    play();
+                } catch (CancellationException e) {
+                    // the last viewer left
+                }
+            });
+        }
+    }
+
+    /**
+     * Unsubscribes a viewer; the producer is stopped when nobody is left.
+     *
+     * @return whether the room is now empty
+     */
+    boolean leave(ViewerConnection conn) {
+        viewers.values().forEach(subscribers -> subscribers.remove(conn));
+        if (viewers() > 0) {
+            return false;
+        }
+        if (producer != null) {
+            producer.interrupt();
+            producer = null;
+        }
+        return true;
+    }
+
+    private void play() {
+        var batcher = new StepBroadcaster();
+        var experiment = new FreedomExperiment(prisoners);
+        while (!Thread.currentThread().isInterrupted()) {
+            boolean result = experiment.run(batcher);
+            batcher.finish();
+            publish(() -> encoder.result(result), () -> encoder.resultJson(result));
+            pause(TRIAL_PAUSE);
+        }
+    }
+
+    /**
+     * Encodes a message once per format that has viewers and broadcasts it to them.
+     */
+    private void publish(Supplier<ByteBuffer> binary, Supplier<String> json) {
+        var binaryViewers = recipients(Format.BINARY);
+        if (!binaryViewers.isEmpty()) {
+            // One copy out of the encoder's buffer, shared by every viewer's send queue
+            var encoded = binary.get();
+            var frame = ByteBuffer.allocate(encoded.remaining()).put(encoded).flip();
+            binaryViewers.forEach(conn -> conn.sendShared(frame));
+            DeliveryMetrics.get().recordBroadcast(frame.remaining(), binaryViewers.size());
+        }
+        var jsonViewers = recipients(Format.JSON);
+        if (!jsonViewers.isEmpty()) {
+            var text = json.get();
+            jsonViewers.forEach(conn -> conn.send(text));
+            DeliveryMetrics.get().recordBroadcast(StepProtocol.utf8Length(text), jsonViewers.size());
+        }
+    }
+
+    /**
+     * Viewers of the given format that can take another message; the others miss this one.
+     */
+    private List<ViewerConnection> recipients(Format format) {
+        var subscribers = viewers.get(format);
+        var recipients = new ArrayList<ViewerConnection>(subscribers.size());
+        int lagging = 0;
+        for (var conn : subscribers) {
+            if (conn.queuedBytes() <= ExperimentSession.HIGH_WATERMARK_BYTES) {
+                recipients.add(conn);
+            } else {
+                lagging++;
+            }
+        }
+        DeliveryMetrics.get().recordDropped(lagging);
+        return recipients;
+    }
+
+    private static void pause(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            throw new CancellationException("Room closed");
+        }
+    }
+
+    /**
+     * Collects the boxes a prisoner opens and broadcasts them as one batch once the prisoner is done.
+     */
+    private final class StepBroadcaster implements StepListener {
+
+        private final int[] boxes = new int[prisoners];
+        private final int[] hiddenNumbers = new int[prisoners];
+        private int prisoner;
+        private int count;
+        private Duration animation = Duration.ZERO;
+
+        @Override
+        public void onStep(Prisoner p, Box box) {
+            if (count > 0 && p.number() != prisoner) {
+                prisonerDone();
+            }
+            prisoner = p.number();
+            boxes[count] = box.label();
+            hiddenNumbers[count] = box.hiddenNumber();
+            count++;
+            if (box.hiddenNumber() == p.number()) {
+                prisonerDone();
+            }
+        }
+
+        @Override
+        public void pace() {
+            if (!animation.isZero()) {
+                var remaining = animation;
+                animation = Duration.ZERO;
+                pause(remaining);
+            }
+        }
+
+        void finish() {
+            if (count > 0) {
+                prisonerDone();
+                pace();
+            }
+        }
+
+        private void prisonerDone() {
+            publish(() -> encoder.steps(prisoner, boxes, hiddenNumbers, count),
+                () -> encoder.stepsJson(prisoner, boxes, hiddenNumbers, count));
+            animation = ExperimentSession.DEFAULT_STEP_DELAY.multipliedBy(count);
+            count = 0;
+        }
+    }
+}
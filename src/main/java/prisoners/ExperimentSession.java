@@ -1,45 +1,500 @@
 package prisoners;
 
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.OptionalInt;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
-import org.java_websocket.WebSocket;
-
-import com.google.gson.Gson;
+import prisoners.StepProtocol.Format;
+import prisoners.jobs.JobManager;
+import prisoners.jobs.JobOptions;
+import prisoners.jobs.JobState;
+import prisoners.jobs.SimulationJob;
+import prisoners.metrics.DeliveryMetrics;
 
+/**
+ * Plays experiments to one WebSocket client, either step by step ({@link Mode#STEPS}), as whole trials the
+ * client animates by itself ({@link Mode#REPLAY}) or as aggregated statistics of a bulk run ({@link Mode#STATS}).
+ *
+ * <p>
+ * Each experiment runs on its own virtual thread, so pacing the steps never blocks the WebSocket I/O threads
+ * and thousands of sessions can be played at once. Stopping is cooperative: the session thread is interrupted
+ * and abandons the experiment at its next step. A start that follows a stop waits up to {@link #STOP_TIMEOUT}
+ * for the stopped experiment to unwind, so the two never send at the same time.
+ *
+ * <p>
+ * Steps are sent one batch per prisoner (see {@link StepProtocol}), paced at the client's chosen speed. The
+ * session never lets a slow client make the server buffer without limit:
+ * <ul>
+ * <li>before sending, it waits until the connection's send queue is below {@link #HIGH_WATERMARK_BYTES};</li>
+ * <li>a client that asks for flow control grants credits, one per message it is ready to receive;</li>
+ * <li>in turbo mode steps are not paced but coalesced into per-prisoner summaries, which pile up in a fixed
+ * buffer while the client is behind and go out together once it catches up.</li>
+ * </ul>
+ *
+ * <p>
+ * In statistics mode the trials run as a job on the shared {@link JobManager}, and the session pushes the
+ * success rate and a {@link CycleHistogram} every {@link #STATS_INTERVAL}. A snapshot the client has no room
+ * for is skipped; the next one supersedes it anyway.
+ *
+ * <p>
+ * In replay mode each trial is computed at once and sent as a single message carrying the permutation; the
+ * client derives and paces the steps itself, so the session costs one send per trial instead of a thread that
+ * sleeps through the animation.
+ */
 public class ExperimentSession {
 
-    private WebSocket connection;
-    private Gson gson = new Gson();
+    static final Duration DEFAULT_STEP_DELAY = Duration.ofMillis(500);
+    static final Duration MAX_STEP_DELAY = Duration.ofSeconds(5);
+    static final int HIGH_WATERMARK_BYTES = 64 * 1024;
+    static final int MAX_CREDITS = 64;
+    static final Duration STOP_TIMEOUT = Duration.ofSeconds(1);
+
+    static final Duration STATS_INTERVAL = Duration.ofMillis(100);
+    static final int MAX_STEP_PRISONERS = 10_000;
+    static final long MAX_STEP_TRIALS = 100;
+    static final int MAX_STATS_PRISONERS = 100_000;
+    // Box openings (see SimulationConfig.trialCost): e.g. 100 million trials of 100 prisoners
+    static final long MAX_STATS_WORK = 500_000_000_000L;
+    // Statistics frames carry the trial counts as 32-bit ints
+    static final long MAX_STATS_TRIALS = Integer.MAX_VALUE;
+    static final int HISTOGRAM_BINS = 50;
+
+    private static final Duration BACKPRESSURE_POLL = Duration.ofMillis(10);
+
+    public enum Mode {
+        STEPS,
+        REPLAY,
+        STATS;
+
+        static Mode parse(String value) {
+            return switch (value.trim().toLowerCase()) {
+                case "steps" -> STEPS;
+                case "replay" -> REPLAY;
+                case "stats" -> STATS;
+                default -> throw new IllegalArgumentException(
+                    String.format("Unknown mode: %s (expected: steps, replay, stats)", value));
+            };
+        }
+    }
 
-    public ExperimentSession(WebSocket connection) {
+    /**
+     * What a client asked for in its start message.
+     *
+     * @param credits    messages the client can take before it grants more credits; empty to send without flow
+     *                   control (the send queue watermark still applies)
+     * @param timestamps whether binary frames carry the time they were sent (see {@link StepProtocol})
+     */
+    public record StartRequest(Format format, Mode mode, int prisoners, long trials, OptionalInt credits,
+            boolean timestamps) {
+
+        public StartRequest {
+            if (mode == Mode.STATS) {
+                if (prisoners > MAX_STATS_PRISONERS || trials > MAX_STATS_TRIALS) {
+                    throw new IllegalArgumentException(String.format(
+                        "At most %d prisoners and %d trials in %s mode", MAX_STATS_PRISONERS, MAX_STATS_TRIALS, mode));
+                }
+                long cost = SimulationConfig.classic(prisoners, Math.max(1, trials)).trialCost();
+                if (trials > MAX_STATS_WORK / cost) {
+                    throw new IllegalArgumentException(String.format(
+                        "At most %d box openings in %s mode (%d trials of %d prisoners need %d each)",
+                        MAX_STATS_WORK, mode, trials, prisoners, cost));
+                }
+            } else if (prisoners > MAX_STEP_PRISONERS || trials > MAX_STEP_TRIALS) {
+                throw new IllegalArgumentException(String.format(
+                    "At most %d prisoners and %d trials in %s mode", MAX_STEP_PRISONERS, MAX_STEP_TRIALS, mode));
+            }
+            if (credits.isPresent() && credits.getAsInt() < 1) {
+                throw new IllegalArgumentException(String.format(
+                    "Credits must be at least 1 (got: %d)", credits.getAsInt()));
+            }
+        }
+
+        public SimulationConfig config() {
+            return SimulationConfig.classic(prisoners, trials);
+        }
+    }
+
+    private final ViewerConnection connection;
+    private Thread experimentThread;
+    private boolean stopping;
+    private volatile Semaphore credits;
+    private volatile Duration stepDelay = DEFAULT_STEP_DELAY;
+    private volatile boolean turbo;
+    private volatile String room;
+    private volatile long lastActivity = System.nanoTime();
+
+    ExperimentSession(ViewerConnection connection) {
         this.connection = connection;
     }
 
-    public void startExperiment() {
-        FreedomExperiment experiment = new FreedomExperiment(100);
-        boolean result = experiment.run(new StepListener() {
+    /**
+     * Starts an experiment unless one is already playing. An experiment that was asked to stop is waited for
+     * first, without holding this session's lock, so the sweeper is not blocked meanwhile.
+     *
+     * @throws IllegalArgumentException if the request does not describe a valid simulation
+     * @throws IllegalStateException    if the stopped experiment did not unwind within {@link #STOP_TIMEOUT}
+     */
+    public void startExperiment(StartRequest request) {
+        var config = request.config();
+        Thread stopped;
+        synchronized (this) {
+            if (experimentThread != null && experimentThread.isAlive() && !stopping) {
+                return;
+            }
+            stopped = experimentThread;
+        }
+        if (stopped != null) {
+            awaitStopped(stopped);
+        }
+        synchronized (this) {
+            if (experimentThread != stopped) {
+                // Another start got in while this one was waiting
+                return;
+            }
+            stopping = false;
+            credits = request.credits().isPresent()
+                    ? new Semaphore(Math.min(request.credits().getAsInt(), MAX_CREDITS))
+                    : null;
+            experimentThread = Thread.ofVirtual()
+                    .name("experiment-session-" + connection.remoteAddress())
+                    .start(() -> {
+                        // Owned by this thread: its buffers are reused for every message of the experiment
+                        var encoder = new MessageEncoder(request.timestamps());
+                        try {
+                            switch (request.mode()) {
+                                case STEPS -> playSteps(config, request.format(), encoder);
+                                case REPLAY -> playReplay(config, request.format(), encoder);
+                                case STATS -> streamStatistics(config, request.format(), encoder);
+                            }
+                        } catch (CancellationException e) {
+                            // stopped by the client, or the connection closed mid-experiment
+                        } finally {
+                            // Idle time counts from the end of the experiment
+                            touch();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Stops the running experiment, if any. Also called when the connection goes away.
+     */
+    public synchronized void stopExperiment() {
+        if (experimentThread != null && experimentThread.isAlive()) {
+            stopping = true;
+            experimentThread.interrupt();
+        }
+    }
 
-            @Override
-            public void onStep(Prisoner prisoner, Box box) {
-                var response = Map.of(
-                        "prisonerNumber", prisoner.number(),
-                        "boxNumber", box.label(),
-                        "hiddenNumber", box.hiddenNumber());
+    private static void awaitStopped(Thread stopped) {
+        try {
+            if (!stopped.join(STOP_TIMEOUT)) {
+                throw new IllegalStateException("The previous experiment is still stopping, try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping the previous experiment", e);
+        }
+    }
+
+    /**
+     * The client is ready for {@code count} more messages. Credits beyond {@link #MAX_CREDITS} are dropped.
+     */
+    public void grantCredits(int count) {
+        var available = credits;
+        if (available != null && count > 0) {
+            available.release(Math.max(0, Math.min(count, MAX_CREDITS - available.availablePermits())));
+        }
+    }
+
+    /**
+     * Sets how long the client takes to animate one step; clamped to {@code [0, MAX_STEP_DELAY]}.
+     */
+    public void setStepDelay(Duration delay) {
+        stepDelay = delay.isNegative() ? Duration.ZERO
+                : delay.compareTo(MAX_STEP_DELAY) > 0 ? MAX_STEP_DELAY : delay;
+    }
+
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+    }
+
+    /**
+     * Records that the client sent something, which keeps the session from being evicted as idle.
+     */
+    void touch() {
+        lastActivity = System.nanoTime();
+    }
+
+    /**
+     * Whether the session has neither played an experiment, watched a room nor heard from its client for
+     * {@code timeout}.
+     */
+    synchronized boolean isIdle(Duration timeout) {
+        boolean playing = experimentThread != null && experimentThread.isAlive();
+        return !playing && room == null && System.nanoTime() - lastActivity > timeout.toNanos();
+    }
+
+    ViewerConnection connection() {
+        return connection;
+    }
+
+    /**
+     * The broadcast room this connection is watching instead of its own experiment, or {@code null}.
+     */
+    String room() {
+        return room;
+    }
+
+    void setRoom(String room) {
+        this.room = room;
+    }
+
+    private void playSteps(SimulationConfig config, Format format, MessageEncoder encoder) {
+        var batcher = new StepBatcher(format, encoder, config.prisoners());
+        var experiment = new FreedomExperiment(config.prisoners());
+        for (long trial = 0; trial < config.trials(); trial++) {
+            boolean result = experiment.run(batcher);
+            batcher.finish();
+            awaitCapacity();
+            switch (format) {
+                case BINARY -> send(encoder.result(result));
+                case JSON -> send(encoder.resultJson(result));
+            }
+        }
+    }
 
-                var json = gson.toJson(response);
-                connection.send(json);
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException e) {
+    private void playReplay(SimulationConfig config, Format format, MessageEncoder encoder) {
+        var experiment = new FreedomExperiment(config.prisoners());
+        var hiddenNumbers = new int[config.prisoners()];
+        for (long trial = 0; trial < config.trials(); trial++) {
+            boolean result = experiment.run();
+            for (int box = 1; box <= hiddenNumbers.length; box++) {
+                hiddenNumbers[box - 1] = experiment.getBox(box).hiddenNumber();
+            }
+            awaitCapacity();
+            switch (format) {
+                case BINARY -> send(encoder.replay(result, config.limit(), hiddenNumbers));
+                case JSON -> send(encoder.replayJson(result, config.limit(), hiddenNumbers));
+            }
+        }
+    }
+
+    private void streamStatistics(SimulationConfig config, Format format, MessageEncoder encoder) {
+        var histogram = new CycleHistogram(config.prisoners(), HISTOGRAM_BINS);
+        SimulationJob job;
+        try {
+            job = JobManager.shared().submit(config, JobOptions.DEFAULT, histogram);
+        } catch (RejectedExecutionException e) {
+            send(StepProtocol.errorJson("The server is busy, try again later"));
+            return;
+        }
+        try {
+            while (!job.result().isDone()) {
+                pause(STATS_INTERVAL);
+                if (tryCapacity()) {
+                    sendStatistics(config, format, encoder, job.progress(), false, histogram);
                 }
             }
+            awaitCapacity();
+            if (job.state() == JobState.SUCCEEDED) {
+                sendStatistics(config, format, encoder, job.progress(), true, histogram);
+            } else {
+                send(StepProtocol.errorJson("Simulation " + job.state().name().toLowerCase()));
+            }
+        } finally {
+            job.cancel();
+        }
+    }
+
+    private void sendStatistics(SimulationConfig config, Format format, MessageEncoder encoder, TrialCounts progress,
+            boolean done, CycleHistogram histogram) {
+        var bins = histogram.snapshot();
+        switch (format) {
+            case BINARY -> send(encoder.stats(config, progress, done, histogram.binWidth(), bins));
+            case JSON -> send(encoder.statsJson(config, progress, done, histogram.binWidth(), bins));
+        }
+    }
+
+    /**
+     * Blocks until the client has a credit to spend and the send queue is below the watermark.
+     */
+    private void awaitCapacity() {
+        if (Thread.interrupted()) {
+            // Nothing below may block, e.g. without flow control: notice a stop before every message anyway
+            throw new CancellationException("Experiment stopped");
+        }
+        try {
+            var available = credits;
+            if (available != null) {
+                available.acquire();
+            }
+            while (connection.queuedBytes() > HIGH_WATERMARK_BYTES) {
+                Thread.sleep(BACKPRESSURE_POLL);
+            }
+        } catch (InterruptedException e) {
+            throw new CancellationException("Experiment stopped");
+        }
+    }
+
+    /**
+     * Takes a credit and returns {@code true} only if a message can be sent right away.
+     */
+    private boolean tryCapacity() {
+        if (connection.queuedBytes() > HIGH_WATERMARK_BYTES) {
+            return false;
+        }
+        var available = credits;
+        return available == null || available.tryAcquire();
+    }
+
+    private void pause(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            // Unwinds FreedomExperiment.run: there is no point finishing an experiment nobody watches
+            throw new CancellationException("Experiment stopped");
+        }
+    }
+
+    private void send(String text) {
+        if (!connection.send(text)) {
+            throw new CancellationException("Connection closed");
+        }
+        DeliveryMetrics.get().recordMessage(StepProtocol.utf8Length(text));
+    }
+
+    private void send(ByteBuffer frame) {
+        int bytes = frame.remaining();
+        if (!connection.send(frame)) {
+            throw new CancellationException("Connection closed");
+        }
+        DeliveryMetrics.get().recordMessage(bytes);
+    }
 
-        });
-        connection.send("Experiment result: " + result);
+    /**
+     * Sends a batch of steps; its delivery latency is recorded once the socket has written it.
+     */
+    private void sendSteps(String text, long produced) {
+        if (!connection.sendStep(text, produced)) {
+            throw new CancellationException("Connection closed");
+        }
+        DeliveryMetrics.get().recordMessage(StepProtocol.utf8Length(text));
     }
 
-    public void stopExperiment() {
-        connection.close();
+    private void sendSteps(ByteBuffer frame, long produced) {
+        int bytes = frame.remaining();
+        if (!connection.sendStep(frame, produced)) {
+            throw new CancellationException("Connection closed");
+        }
+        DeliveryMetrics.get().recordMessage(bytes);
     }
 
+    /**
+     * Collects the boxes a prisoner opens and, once the prisoner is done, either sends them as one paced batch
+     * or (in turbo mode) folds them into a one-line summary.
+     */
+    private final class StepBatcher implements StepListener {
+
+        private final Format format;
+        private final MessageEncoder encoder;
+        private final int[] boxes;
+        private final int[] hiddenNumbers;
+        private int prisoner;
+        private int count;
+
+        private final int[] summaryPrisoners;
+        private final int[] summaryOpened;
+        private final boolean[] summaryFound;
+        private int summaries;
+
+        // How long the client animates the last batch; waited out in pace()
+        private Duration animation = Duration.ZERO;
+
+        StepBatcher(Format format, MessageEncoder encoder, int prisoners) {
+            this.format = format;
+            this.encoder = encoder;
+            this.boxes = new int[prisoners];
+            this.hiddenNumbers = new int[prisoners];
+            this.summaryPrisoners = new int[prisoners];
+            this.summaryOpened = new int[prisoners];
+            this.summaryFound = new boolean[prisoners];
+        }
+
+        @Override
+        public void onStep(Prisoner p, Box box) {
+            if (count > 0 && p.number() != prisoner) {
+                prisonerDone(false);
+            }
+            prisoner = p.number();
+            boxes[count] = box.label();
+            hiddenNumbers[count] = box.hiddenNumber();
+            count++;
+            if (box.hiddenNumber() == p.number()) {
+                prisonerDone(true);
+            }
+        }
+
+        @Override
+        public void pace() {
+            if (!animation.isZero()) {
+                var remaining = animation;
+                animation = Duration.ZERO;
+                pause(remaining);
+            }
+        }
+
+        /**
+         * Flushes whatever is still buffered at the end of the experiment.
+         */
+        void finish() {
+            if (count > 0) {
+                prisonerDone(hiddenNumbers[count - 1] == prisoner);
+                pace();
+            }
+            if (summaries > 0) {
+                awaitCapacity();
+                sendSummaries();
+            }
+        }
+
+        private void prisonerDone(boolean found) {
+            if (turbo) {
+                summaryPrisoners[summaries] = prisoner;
+                summaryOpened[summaries] = count;
+                summaryFound[summaries] = found;
+                summaries++;
+                count = 0;
+                if (tryCapacity()) {
+                    sendSummaries();
+                }
+                return;
+            }
+            if (summaries > 0) {
+                // Leaving turbo: catch the client up before playing steps again
+                awaitCapacity();
+                sendSummaries();
+            }
+            awaitCapacity();
+            long produced = System.nanoTime();
+            switch (format) {
+                case BINARY -> sendSteps(encoder.steps(prisoner, boxes, hiddenNumbers, count), produced);
+                case JSON -> sendSteps(encoder.stepsJson(prisoner, boxes, hiddenNumbers, count), produced);
+            }
+            animation = stepDelay.multipliedBy(count);
+            count = 0;
+        }
+
+        private void sendSummaries() {
+            switch (format) {
+                case BINARY -> send(encoder.summary(summaryPrisoners, summaryOpened, summaryFound, summaries));
+                case JSON -> send(encoder.summaryJson(summaryPrisoners, summaryOpened, summaryFound, summaries));
+            }
+            DeliveryMetrics.get().recordSummaries(summaries);
+            summaries = 0;
+        }
+    }
 }
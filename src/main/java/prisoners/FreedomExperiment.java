@@ -2,6 +2,7 @@ package prisoners;
 
 import java.util.*;
 import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
 import java.util.stream.IntStream;
 
 /**
@@ -15,13 +16,33 @@ public final class FreedomExperiment {
     private static final Logger logger = Logger.getLogger(FreedomExperiment.class.getName());
 
     private final int numberOfPrisoners;
+    private final int maxSearches;
+    private final Strategy strategy;
     private final List<Prisoner> prisoners;
     private final List<Prisoner> freedPrisoners;
     private final Map<Integer, Box> boxes;
     private final List<Integer> numbers;
+    private RandomGenerator random;
+
+    // Scratch labels for the random strategy (a permutation of 1..N, reused across prisoners)
+    private int[] randomOrder;
+
+    // Whether the current run is one of the trials SimulationEvents samples
+    private boolean recording;
 
     public FreedomExperiment(int numberOfPrisoners) {
+        this(numberOfPrisoners, numberOfPrisoners / 2, Strategy.CHAIN_FOLLOWING, new Random());
+    }
+
+    /**
+     * Creates an experiment where each prisoner may open {@code maxSearches} boxes using the given
+     * strategy, drawing all randomness (shuffles and random searches) from {@code random}.
+     */
+    public FreedomExperiment(int numberOfPrisoners, int maxSearches, Strategy strategy, RandomGenerator random) {
         this.numberOfPrisoners = validateNumberOfPrisoners(numberOfPrisoners);
+        this.maxSearches = validateMaxSearches(maxSearches, numberOfPrisoners);
+        this.strategy = Objects.requireNonNull(strategy, "strategy");
+        this.random = Objects.requireNonNull(random, "random");
         
         // Use sized collections for better performance
         this.prisoners = new ArrayList<>(numberOfPrisoners);
@@ -30,32 +51,95 @@ public final class FreedomExperiment {
         this.boxes = new HashMap<>(numberOfPrisoners);
     }
 
+    /**
+     * Replaces the random source with a deterministic one, so the next {@link #run()} is reproducible.
+     */
+    public void reseed(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
     /**
      * Runs the experiment with optional step listener using modern switch expressions.
      */
     private boolean runInternal(Optional<StepListener> stepListener) {
+        recording = SimulationEvents.sampleTrial();
+        if (recording) {
+            return runRecorded(stepListener);
+        }
+        shuffle();
+        return evaluate(stepListener);
+    }
+
+    /**
+     * Same as an ordinary run, but records Flight Recorder events for the trial and both of its phases.
+     */
+    private boolean runRecorded(Optional<StepListener> stepListener) {
+        var trialEvent = new SimulationEvents.Trial();
+        trialEvent.begin();
+
+        var shuffleEvent = new SimulationEvents.Shuffle();
+        shuffleEvent.begin();
+        shuffle();
+        shuffleEvent.end();
+        if (shuffleEvent.shouldCommit()) {
+            shuffleEvent.prisoners = numberOfPrisoners;
+            shuffleEvent.commit();
+        }
+
+        var evaluateEvent = new SimulationEvents.Evaluate();
+        evaluateEvent.begin();
+        boolean success = evaluate(stepListener);
+        evaluateEvent.end();
+        if (evaluateEvent.shouldCommit()) {
+            evaluateEvent.prisoners = numberOfPrisoners;
+            evaluateEvent.success = success;
+            evaluateEvent.commit();
+        }
+
+        trialEvent.end();
+        if (trialEvent.shouldCommit()) {
+            trialEvent.prisoners = numberOfPrisoners;
+            trialEvent.limit = maxSearches;
+            trialEvent.strategy = strategy.name();
+            trialEvent.success = success;
+            trialEvent.freed = freedPrisoners.size();
+            trialEvent.longestCycle = longestCycle();
+            trialEvent.commit();
+        }
+        return success;
+    }
+
+    /**
+     * Shuffle phase: rebuilds boxes and prisoners and hides a fresh permutation in the boxes.
+     */
+    void shuffle() {
         prepareDatastructures();
         shuffleNumbersInsideBoxes();
+    }
+
+    /**
+     * Evaluation phase: lets every prisoner search the boxes prepared by the last {@link #shuffle()}.
+     */
+    boolean evaluate(Optional<StepListener> stepListener) {
         freedPrisoners.clear();
 
-        final int maxSearches = numberOfPrisoners / 2;
-        
-        return prisoners.stream().allMatch(prisoner -> 
-            findPrisonerNumber(prisoner, maxSearches, stepListener)
-        );
+        return prisoners.stream().allMatch(prisoner -> switch (strategy) {
+            case CHAIN_FOLLOWING -> findPrisonerNumber(prisoner, stepListener);
+            case RANDOM -> searchRandomBoxes(prisoner, stepListener);
+        });
     }
 
     /**
      * Modern implementation of prisoner search using enhanced pattern matching.
      */
-    private boolean findPrisonerNumber(Prisoner prisoner, int maxSearches, Optional<StepListener> stepListener) {
+    private boolean findPrisonerNumber(Prisoner prisoner, Optional<StepListener> stepListener) {
         Box currentBox = boxes.get(prisoner.number());
         int searches = 0;
         
         while (searches < maxSearches) {
             // Capture the current box for the lambda
             final Box boxToReport = currentBox;
-            stepListener.ifPresent(listener -> listener.onStep(prisoner, boxToReport));
+            stepListener.ifPresent(listener -> notifyListener(listener, prisoner, boxToReport));
             
             if (currentBox.hiddenNumber() == prisoner.number()) {
                 freedPrisoners.add(prisoner);
@@ -70,8 +154,78 @@ public final class FreedomExperiment {
         return false; // Exceeded max searches
     }
 
+    /**
+     * Naive strategy: open {@code maxSearches} distinct boxes picked uniformly at random
+     * (a partial Fisher-Yates shuffle over the box labels).
+     */
+    private boolean searchRandomBoxes(Prisoner prisoner, Optional<StepListener> stepListener) {
+        if (randomOrder == null) {
+            randomOrder = IntStream.rangeClosed(1, numberOfPrisoners).toArray();
+        }
+
+        for (int searches = 0; searches < maxSearches; searches++) {
+            int pick = searches + random.nextInt(numberOfPrisoners - searches);
+            int label = randomOrder[pick];
+            randomOrder[pick] = randomOrder[searches];
+            randomOrder[searches] = label;
+
+            final Box box = boxes.get(label);
+            stepListener.ifPresent(listener -> notifyListener(listener, prisoner, box));
+
+            if (box.hiddenNumber() == prisoner.number()) {
+                freedPrisoners.add(prisoner);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reports a step and lets the listener pace it. In a recorded run, a stall event is recorded when the
+     * listener blocks beyond the event threshold outside its deliberate pacing.
+     */
+    private void notifyListener(StepListener listener, Prisoner prisoner, Box box) {
+        if (!recording) {
+            listener.onStep(prisoner, box);
+            listener.pace();
+            return;
+        }
+        var stall = new SimulationEvents.ListenerStall();
+        stall.begin();
+        listener.onStep(prisoner, box);
+        stall.end();
+        if (stall.shouldCommit()) {
+            stall.prisoner = prisoner.number();
+            stall.box = box.label();
+            stall.commit();
+        }
+        listener.pace();
+    }
+
+    /**
+     * Length of the longest cycle in the current permutation. With the chain strategy everyone escapes
+     * exactly when it does not exceed the number of boxes each prisoner may open.
+     */
+    public int longestCycle() {
+        var visited = new boolean[numberOfPrisoners + 1];
+        int longest = 0;
+        for (int start = 1; start <= numberOfPrisoners; start++) {
+            if (visited[start] || !boxes.containsKey(start)) {
+                continue;
+            }
+            int length = 0;
+            for (int label = start; !visited[label]; label = boxes.get(label).hiddenNumber()) {
+                visited[label] = true;
+                length++;
+            }
+            longest = Math.max(longest, length);
+        }
+        return longest;
+    }
+
     private void shuffleNumbersInsideBoxes() {
-        Collections.shuffle(numbers);
+        Collections.shuffle(numbers, random);
 
         if (logger.isLoggable(java.util.logging.Level.FINE)) {
             logger.fine(String.format("Shuffled tags: %s", numbers));
@@ -121,6 +275,14 @@ public final class FreedomExperiment {
         return numberOfPrisoners;
     }
 
+    private static int validateMaxSearches(int maxSearches, int numberOfPrisoners) {
+        if (maxSearches < 1 || maxSearches > numberOfPrisoners) {
+            throw new IllegalArgumentException(String.format(
+                "Boxes per prisoner must be between 1 and %d (got: %d)", numberOfPrisoners, maxSearches));
+        }
+        return maxSearches;
+    }
+
     public Box getBox(int boxNumber) {
         return boxes.get(boxNumber);
     }
@@ -1,87 +1,465 @@
 package prisoners;
 
-import static spark.Spark.externalStaticFileLocation;
+import static spark.Spark.delete;
+import static spark.Spark.exception;
 import static spark.Spark.get;
+import static spark.Spark.halt;
 import static spark.Spark.port;
+import static spark.Spark.post;
+import static spark.Spark.threadPool;
+import static spark.Spark.webSocket;
 
-import java.net.InetSocketAddress;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import org.java_websocket.WebSocket;
-import org.java_websocket.handshake.ClientHandshake;
-import org.java_websocket.server.WebSocketServer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketFrame;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.server.NativeWebSocketConfiguration;
 
 import com.google.gson.Gson;
 
+import prisoners.jobs.JobManager;
+import prisoners.jobs.JobOptions;
+import prisoners.jobs.JobState;
+import prisoners.jobs.Priority;
+import prisoners.jobs.SimulationJob;
+import prisoners.metrics.PrometheusExporter;
+import prisoners.metrics.SimulationMetrics;
+
+import spark.Request;
 import spark.Spark;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+/**
+ * Streams experiments to browsers over WebSocket, on the same port and the same embedded Jetty server as the
+ * web page, the REST API and the metrics (see {@link #start(int)}).
+ *
+ * <p>
+ * The WebSocket side is sized for about ten thousand concurrent sessions on one node. Sessions live in a
+ * concurrent registry, since the connect, close and message callbacks run on many of the server's virtual
+ * threads at once. Experiments run on virtual threads of their own, so a session that is not playing costs
+ * only its connection. Each connection's memory is bounded: incoming messages may not exceed
+ * {@link #MAX_FRAME_BYTES}, and outgoing messages respect the session's send queue watermark. Clients that
+ * vanish without closing are found by ping/pong within {@code prisoners.ws.connectionLostTimeout} seconds.
+ * Sessions that neither play anything nor send a message for {@code prisoners.ws.idleTimeout} seconds are
+ * closed. Viewers that offer permessage-deflate get compressed messages (see {@link DeflateExtension}).
+ */
+@WebSocket(maxTextMessageSize = FreedomExperimentWebSocketServer.MAX_FRAME_BYTES,
+        maxBinaryMessageSize = FreedomExperimentWebSocketServer.MAX_FRAME_BYTES)
+public class FreedomExperimentWebSocketServer {
+
+    private static final Logger logger = Logger.getLogger(FreedomExperimentWebSocketServer.class.getName());
+
+    static final int DEFAULT_PORT = 8080;
+    static final String WEBSOCKET_PATH = "/ws";
+    /**
+     * Largest message a client may send. Control messages are a few dozen bytes.
+     */
+    static final int MAX_FRAME_BYTES = 16 * 1024;
+    static final int DEFAULT_CONNECTION_LOST_TIMEOUT_SECONDS = 30;
+    /**
+     * Accept backlog, so a burst of reconnecting clients is not refused (the JDK default is 50).
+     */
+    static final int ACCEPT_BACKLOG = 1024;
+    static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final long MAX_SYNC_TRIALS = 1_000_000;
+    private static final long MAX_JOB_TRIALS = 10_000_000_000L;
+    private static final Duration SYNC_TIMEOUT = Duration.ofSeconds(30);
 
-public class FreedomExperimentWebSocketServer extends WebSocketServer {
+    private final Map<Session, ExperimentSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, ExperimentRoom> rooms = new ConcurrentHashMap<>();
+    private final Duration idleTimeout;
+    private final Duration connectionLostTimeout;
+    private Thread sweeper;
+
+    /**
+     * Creates an endpoint tuned through the {@code prisoners.ws.idleTimeout} and
+     * {@code prisoners.ws.connectionLostTimeout} (in seconds) system properties.
+     */
+    public FreedomExperimentWebSocketServer() {
+        this(Duration.ofSeconds(Long.getLong("prisoners.ws.idleTimeout", DEFAULT_IDLE_TIMEOUT.toSeconds())),
+                Duration.ofSeconds(Integer.getInteger("prisoners.ws.connectionLostTimeout",
+                        DEFAULT_CONNECTION_LOST_TIMEOUT_SECONDS)));
+    }
+
+    /**
+     * @param idleTimeout            how long a session may do nothing before it is closed
+     * @param connectionLostTimeout  time between pings; a connection without a pong for 1.5 times as long is
+     *                               dropped
+     */
+    public FreedomExperimentWebSocketServer(Duration idleTimeout, Duration connectionLostTimeout) {
+        if (!idleTimeout.isPositive() || !connectionLostTimeout.isPositive()) {
+            throw new IllegalArgumentException(String.format(
+                    "Idle timeout and connection lost timeout must be positive (got: %s, %s)",
+                    idleTimeout, connectionLostTimeout));
+        }
+        this.idleTimeout = idleTimeout;
+        this.connectionLostTimeout = connectionLostTimeout;
+    }
 
-    private Map<WebSocket, ExperimentSession> sessions = new HashMap<>();
-    private Gson gson = new Gson();
+    @OnWebSocketConnect
+    public void onConnect(Session session) {
+        logger.fine(() -> "New connection: " + session.getRemoteAddress());
+        sessions.put(session, new ExperimentSession(new ViewerConnection(session)));
+        SimulationMetrics.get().sessionOpened();
+    }
 
-    public FreedomExperimentWebSocketServer(int port) {
-        super(new InetSocketAddress(port));
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        var experiment = removeSession(session);
+        logger.fine(() -> experiment.flatMap(e -> e.connection().deflate())
+                .map(deflate -> String.format("Closed connection: %s (%d message bytes compressed to %.0f%%)",
+                        session.getRemoteAddress(), deflate.payloadBytes(), deflate.compressionRatio() * 100))
+                .orElse("Closed connection: " + session.getRemoteAddress()));
     }
 
-    @Override
-    public void onOpen(WebSocket conn, ClientHandshake handshake) {
-        System.out.println("New connection: " + conn.getRemoteSocketAddress());
-        sessions.put(conn, new ExperimentSession(conn));
+    @OnWebSocketError
+    public void onError(Session session, Throwable cause) {
+        removeSession(session);
+        // Mostly clients that went away mid-write
+        logger.log(Level.FINE, cause, () -> "WebSocket error: " + session.getRemoteAddress());
     }
 
-    @Override
-    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
-        sessions.remove(conn);
-        System.out.println("Closed connection: " + conn.getRemoteSocketAddress());
+    @OnWebSocketFrame
+    public void onFrame(Session session, Frame frame) {
+        if (frame.getType() == Frame.Type.PONG) {
+            var experiment = sessions.get(session);
+            if (experiment != null) {
+                experiment.connection().pongReceived();
+            }
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public void onMessage(WebSocket conn, String message) {
-        Map<String, String> msg = gson.fromJson(message, HashMap.class);
-        if ("start".equals(msg.get("action"))) {
-            ExperimentSession session = sessions.get(conn);
-            session.startExperiment();
-        } else if ("stop".equals(msg.get("action"))) {
-            ExperimentSession session = sessions.get(conn);
-            session.stopExperiment();
+    @OnWebSocketMessage
+    public void onMessage(Session session, String message) {
+        ExperimentSession experiment = sessions.get(session);
+        if (experiment == null) {
+            return;
+        }
+        experiment.touch();
+        try {
+            switch (ControlMessage.parse(message)) {
+                case ControlMessage.Start start -> {
+                    leaveRoom(experiment);
+                    experiment.startExperiment(start.request());
+                }
+                case ControlMessage.Join join -> joinRoom(experiment, join);
+                case ControlMessage.Leave leave -> leaveRoom(experiment);
+                case ControlMessage.Stop stop -> experiment.stopExperiment();
+                case ControlMessage.Credit credit -> experiment.grantCredits(credit.count());
+                case ControlMessage.Speed speed -> experiment.setStepDelay(speed.delay());
+                case ControlMessage.Turbo turbo -> experiment.setTurbo(turbo.enabled());
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Tell the client what was wrong; the connection stays usable
+            experiment.connection().send(StepProtocol.errorJson(e.getMessage()));
         }
     }
 
-    @Override
-    public void onError(WebSocket conn, Exception ex) {
-        sessions.remove(conn);
-        ex.printStackTrace();
+    /**
+     * Subscribes the connection to a broadcast room: {@code {"action":"join","room":"demo","format":"binary"}}.
+     * The first viewer creates the room and may pick its number of prisoners; later viewers get the room as it
+     * is. Joining stops the connection's own experiment and leaves any other room.
+     */
+    private void joinRoom(ExperimentSession experiment, ControlMessage.Join join) {
+        // Validates the request before leaving anything; only used if nobody is in the room yet
+        var created = new ExperimentRoom(join.room(), join.prisoners());
+        leaveRoom(experiment);
+        experiment.stopExperiment();
+        // compute() serializes joins and leaves per room, so a room is never dropped while someone joins it
+        rooms.compute(join.room(), (key, room) -> {
+            var joined = room != null ? room : created;
+            joined.join(experiment.connection(), join.format());
+            return joined;
+        });
+        experiment.setRoom(join.room());
     }
 
-    @Override
-    public void onStart() {
-        System.out.println("Server started!");
+    private void leaveRoom(ExperimentSession experiment) {
+        var name = experiment.room();
+        if (name != null) {
+            rooms.computeIfPresent(name, (key, room) -> room.leave(experiment.connection()) ? null : room);
+            experiment.setRoom(null);
+        }
     }
 
-    public static void main(String[] args) {
-        // Print the current working directory
-        System.out.println("Current working directory: " + System.getProperty("user.dir"));
-        port(8080);
-        externalStaticFileLocation("/Users/brunoborges/work/100-prisoners/src/main/resources");
+    private Optional<ExperimentSession> removeSession(Session session) {
+        // onError may be followed by onClose for the same connection; count it only once
+        var experiment = Optional.ofNullable(sessions.remove(session));
+        experiment.ifPresent(e -> {
+            leaveRoom(e);
+            e.stopExperiment();
+            SimulationMetrics.get().sessionClosed();
+        });
+        return experiment;
+    }
+
+    /**
+     * Pings every client and closes the connections that are gone or idle, until interrupted.
+     */
+    private void sweep() {
+        var interval = idleTimeout.dividedBy(4);
+        if (!interval.isPositive() || interval.compareTo(connectionLostTimeout) > 0) {
+            interval = connectionLostTimeout;
+        }
+        var lostAfter = connectionLostTimeout.multipliedBy(3).dividedBy(2);
+        try {
+            while (true) {
+                Thread.sleep(interval);
+                sessions.forEach((session, experiment) -> {
+                    var connection = experiment.connection();
+                    if (connection.isLost(lostAfter)) {
+                        connection.disconnect();
+                    } else if (experiment.isIdle(idleTimeout)) {
+                        connection.close(StatusCode.SHUTDOWN, "Idle timeout");
+                    } else {
+                        connection.ping();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private long compressedSessions() {
+        return sessions.values().stream().filter(e -> e.connection().deflate().isPresent()).count();
+    }
+
+    private long totalQueuedBytes() {
+        return sessions.values().stream().mapToLong(e -> e.connection().queuedBytes()).sum();
+    }
+
+    private int totalQueuedFrames() {
+        return sessions.values().stream().mapToInt(e -> e.connection().queuedFrames()).sum();
+    }
+
+    private int maxQueuedFrames() {
+        return sessions.values().stream().mapToInt(e -> e.connection().queuedFrames()).max().orElse(0);
+    }
+
+    /**
+     * Tunes what Spark leaves at Jetty's defaults: the accept backlog, and which compression extensions the
+     * WebSocket endpoint negotiates. The web page is answered from memory before Spark sees the request.
+     */
+    private static void configureJetty(Server jetty, StaticAssets assets) {
+        for (var connector : jetty.getConnectors()) {
+            if (connector instanceof ServerConnector serverConnector) {
+                serverConnector.setAcceptQueueSize(ACCEPT_BACKLOG);
+            }
+        }
+        assets.setHandler(jetty.getHandler());
+        jetty.setHandler(assets);
+        var context = jetty.getChildHandlerByClass(ServletContextHandler.class);
+        if (context == null) {
+            return;
+        }
+        var configuration = (NativeWebSocketConfiguration) context.getServletContext()
+                .getAttribute(NativeWebSocketConfiguration.class.getName());
+        // Deprecated for Jetty 10, but Jetty 9.4 (which Spark runs on) has no other way to replace an extension
+        @SuppressWarnings("deprecation")
+        var extensions = configuration.getFactory().getExtensionFactory();
+        // Only permessage-deflate is standard; the others are drafts browsers no longer offer
+        extensions.unregister("deflate-frame");
+        extensions.unregister("x-webkit-deflate-frame");
+        if (DeflateExtension.ENABLED) {
+            extensions.register("permessage-deflate", DeflateExtension.class);
+        } else {
+            extensions.unregister("permessage-deflate");
+        }
+    }
+
+    /**
+     * Reads a simulation from query (or form) parameters: prisoners, limit, strategy, seed and trials.
+     */
+    static SimulationConfig parseSimulationConfig(Request request, long maxTrials) {
+        int prisoners = Integer.parseInt(request.queryParamOrDefault("prisoners", "100"));
+        int limit = Integer.parseInt(request.queryParamOrDefault("limit", Integer.toString(prisoners / 2)));
+        var strategy = Strategy.parse(request.queryParamOrDefault("strategy", "chain"));
+        var seedParam = request.queryParams("seed");
+        var seed = seedParam == null ? OptionalLong.empty() : OptionalLong.of(Long.parseLong(seedParam));
+        long trials = Long.parseLong(request.queryParamOrDefault("trials", "10000"));
+        if (trials > maxTrials) {
+            throw new IllegalArgumentException(String.format("Too many trials (maximum: %d)", maxTrials));
+        }
+        return new SimulationConfig(prisoners, limit, strategy, seed, trials);
+    }
+
+    /**
+     * Reads scheduling options from query (or form) parameters: priority, weight and timeout (in seconds).
+     * {@link Priority#HIGH} is reserved for the bounded, interactive {@code /api/simulate}: priorities are
+     * strict, so a client submitting high-priority bulk jobs would starve everyone else.
+     */
+    static JobOptions parseJobOptions(Request request) {
+        var priority = Priority.parse(request.queryParamOrDefault("priority", "normal"));
+        if (priority == Priority.HIGH) {
+            throw new IllegalArgumentException("Priority high is reserved for /api/simulate (expected: low, normal)");
+        }
+        var options = new JobOptions(priority, Integer.parseInt(request.queryParamOrDefault("weight", "1")),
+                Optional.empty());
+        var timeout = request.queryParams("timeout");
+        return timeout == null ? options : options.withTimeout(Duration.ofSeconds(Long.parseLong(timeout)));
+    }
+
+    private static Map<String, Object> resultJson(SimulationResult result) {
+        var config = result.config();
+        return Map.of(
+                "prisoners", config.prisoners(),
+                "limit", config.limit(),
+                "strategy", config.strategy().name(),
+                "trials", result.trials(),
+                "successes", result.successes(),
+                "successRate", result.successRate(),
+                "exactSuccessRate", config.exactSuccessProbability() * 100.0);
+    }
+
+    private static SimulationJob findJob(JobManager jobs, Request request) {
+        return jobs.get(request.params(":id")).orElseThrow(() -> halt(404, "Unknown job"));
+    }
+
+    /**
+     * Starts the one embedded server of this node on {@code port}: the web page (see {@link StaticAssets}), the
+     * REST API, the metrics and the WebSocket endpoint at {@value #WEBSOCKET_PATH}. HTTP requests and WebSocket
+     * callbacks run on virtual threads, at most {@code prisoners.http.maxThreads} at a time (see
+     * {@link VirtualThreadJettyFactory}). Spark keeps a single server per JVM, so this may be called only once.
+     *
+     * @return the WebSocket endpoint, to {@link #stop()} the server with
+     */
+    public static FreedomExperimentWebSocketServer start(int port) {
+        var server = new FreedomExperimentWebSocketServer();
+        var assets = StaticAssets.load();
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                new EmbeddedJettyFactory(new VirtualThreadJettyFactory(jetty -> configureJetty(jetty, assets))));
+        port(port);
+        threadPool(Integer.getInteger("prisoners.http.maxThreads", VirtualThreadJettyFactory.DEFAULT_MAX_THREADS),
+                Integer.getInteger("prisoners.http.minThreads", VirtualThreadJettyFactory.DEFAULT_MIN_THREADS),
+                Integer.getInteger("prisoners.http.idleTimeout", VirtualThreadJettyFactory.DEFAULT_IDLE_TIMEOUT_MILLIS));
+        // The WebSocket endpoint must be configured before the first route
+        webSocket(WEBSOCKET_PATH, server);
         get("/hello", (request, response) -> "Hello World!");
 
-        System.out.println("Starting WebSocket server on port 8081");
-        WebSocketServer server = new FreedomExperimentWebSocketServer(8081);
-        server.start();
+        var exporter = new PrometheusExporter();
+        exporter.registerGauge("prisoners_websocket_send_queue_frames",
+                "Frames queued across all WebSocket connections.", server::totalQueuedFrames);
+        exporter.registerGauge("prisoners_websocket_send_queue_max_frames",
+                "Deepest send queue of a single WebSocket connection.", server::maxQueuedFrames);
+        exporter.registerGauge("prisoners_websocket_send_queue_bytes",
+                "Bytes queued across all WebSocket connections.", server::totalQueuedBytes);
+        exporter.registerGauge("prisoners_websocket_rooms", "Broadcast rooms with at least one viewer.",
+                () -> server.rooms.size());
+        exporter.registerGauge("prisoners_websocket_compressed_sessions",
+                "WebSocket sessions that negotiated permessage-deflate.", server::compressedSessions);
+        get("/metrics", (request, response) -> {
+            response.type(PrometheusExporter.CONTENT_TYPE);
+            return exporter.scrape();
+        });
 
-        // add hook to shutdown
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        // Simulations run on the shared fair scheduler: interactive requests ahead of bulk jobs
+        var gson = new Gson();
+        var jobs = JobManager.shared();
+        get("/api/simulate", (request, response) -> {
+            var config = parseSimulationConfig(request, MAX_SYNC_TRIALS);
+            var job = jobs.submit(config, JobOptions.of(Priority.HIGH).withTimeout(SYNC_TIMEOUT));
             try {
-                server.stop();
-                Spark.stop();
-            } catch (InterruptedException e) {
+                var result = job.result().join();
+                response.type("application/json");
+                return gson.toJson(resultJson(result));
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof TimeoutException timeout) {
+                    throw halt(504, timeout.getMessage());
+                }
+                throw e;
+            }
+        });
 
+        // Bulk simulations run in the background: submit, poll, cancel and fetch the result
+        exporter.registerGauge("prisoners_jobs_queued", "Simulation jobs waiting for a worker thread.", jobs::queuedJobs);
+        exporter.registerGauge("prisoners_jobs_running", "Simulation jobs currently running.", jobs::runningJobs);
+        post("/api/jobs", (request, response) -> {
+            var job = jobs.submit(parseSimulationConfig(request, MAX_JOB_TRIALS), parseJobOptions(request));
+            response.status(202);
+            response.header("Location", "/api/jobs/" + job.id());
+            response.type("application/json");
+            return gson.toJson(job.status());
+        });
+        get("/api/jobs", (request, response) -> {
+            response.type("application/json");
+            return gson.toJson(jobs.list().stream().map(SimulationJob::status).toList());
+        });
+        get("/api/jobs/:id", (request, response) -> {
+            response.type("application/json");
+            return gson.toJson(findJob(jobs, request).status());
+        });
+        delete("/api/jobs/:id", (request, response) -> {
+            var job = jobs.cancel(request.params(":id")).orElseThrow(() -> halt(404, "Unknown job"));
+            response.type("application/json");
+            return gson.toJson(job.status());
+        });
+        get("/api/jobs/:id/result", (request, response) -> {
+            var job = findJob(jobs, request);
+            response.type("application/json");
+            if (job.state() != JobState.SUCCEEDED) {
+                response.status(409);
+                return gson.toJson(job.status());
             }
+            return gson.toJson(resultJson(job.result().join()));
+        });
+
+        exception(IllegalArgumentException.class, (e, request, response) -> {
+            response.status(400);
+            response.body(e.getMessage());
+        });
+        exception(RejectedExecutionException.class, (e, request, response) -> {
+            response.status(503);
+            response.header("Retry-After", "5");
+            response.body("Too many queued jobs, try again later");
+        });
+
+        Spark.awaitInitialization();
+        server.sweeper = Thread.ofVirtual().name("websocket-sweeper").start(server::sweep);
+        return server;
+    }
+
+    /**
+     * Stops the server and waits until its port is free again; open WebSocket sessions are closed.
+     */
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.interrupt();
+        }
+        Spark.stop();
+        Spark.awaitStop();
+    }
+
+    public static void main(String[] args) {
+        SimulationMetrics.register();
+        int port = Integer.getInteger("prisoners.port", DEFAULT_PORT);
+        var server = start(port);
+        System.out.printf("Serving http://localhost:%d/ (WebSocket at %s)%n", port, WEBSOCKET_PATH);
+
+        // add hook to shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            JobManager.shared().close();
         }));
     }
-}
\ No newline at end of file
+}
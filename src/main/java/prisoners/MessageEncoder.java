@@ -0,0 +1,172 @@
+package prisoners;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes {@link StepProtocol} messages into buffers that are reused from one message to the next. Binary
+ * frames cost no allocation at all once the buffer has grown to the largest message; JSON messages are built
+ * by hand in one {@link StringBuilder}, without reflection or intermediate maps, and only the final string is
+ * allocated.
+ *
+ * <p>
+ * Not thread-safe: every producer thread owns its encoder. A returned {@link ByteBuffer} is only valid until
+ * the next call, which is all {@link ViewerConnection#send(ByteBuffer)} needs: it copies the payload before it
+ * returns.
+ */
+final class MessageEncoder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final boolean timestamps;
+    private final StringBuilder text = new StringBuilder(INITIAL_CAPACITY);
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+
+    MessageEncoder() {
+        this(false);
+    }
+
+    /**
+     * @param timestamps whether binary frames end with the time they were encoded (see {@link StepProtocol})
+     */
+    MessageEncoder(boolean timestamps) {
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * Encodes the first {@code count} steps of a prisoner: the opened boxes and the numbers hidden in them.
+     */
+    ByteBuffer steps(int prisoner, int[] boxes, int[] hiddenNumbers, int count) {
+        var out = begin(3 + 2 * count).putInt(StepProtocol.STEPS).putInt(prisoner).putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putInt(boxes[i]).putInt(hiddenNumbers[i]);
+        }
+        return end();
+    }
+
+    ByteBuffer result(boolean success) {
+        begin(2).putInt(StepProtocol.RESULT).putInt(success ? 1 : 0);
+        return end();
+    }
+
+    /**
+     * Encodes per-prisoner summaries: how many boxes each prisoner opened and whether they found their number.
+     */
+    ByteBuffer summary(int[] prisoners, int[] opened, boolean[] found, int count) {
+        var out = begin(2 + 3 * count).putInt(StepProtocol.SUMMARY).putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putInt(prisoners[i]).putInt(opened[i]).putInt(found[i] ? 1 : 0);
+        }
+        return end();
+    }
+
+    /**
+     * Encodes aggregated statistics of a run (see {@link CycleHistogram} for the bins).
+     */
+    ByteBuffer stats(SimulationConfig config, TrialCounts progress, boolean done, int binWidth, long[] histogram) {
+        var out = begin(8 + histogram.length).putInt(StepProtocol.STATS).putInt(done ? 1 : 0)
+            .putInt(Math.toIntExact(config.trials()))
+            .putInt(Math.toIntExact(progress.trials()))
+            .putInt(Math.toIntExact(progress.successes()))
+            .putInt(config.limit())
+            .putInt(binWidth)
+            .putInt(histogram.length);
+        for (long count : histogram) {
+            out.putInt(Math.toIntExact(count));
+        }
+        return end();
+    }
+
+    /**
+     * Encodes a finished trial as the numbers hidden in boxes 1 to {@code hiddenNumbers.length}. Prisoners
+     * search in order and the first one who fails ends the trial, exactly as {@link FreedomExperiment} does.
+     */
+    ByteBuffer replay(boolean success, int limit, int[] hiddenNumbers) {
+        var out = begin(4 + hiddenNumbers.length).putInt(StepProtocol.REPLAY).putInt(success ? 1 : 0)
+            .putInt(limit).putInt(hiddenNumbers.length);
+        for (int hiddenNumber : hiddenNumbers) {
+            out.putInt(hiddenNumber);
+        }
+        return end();
+    }
+
+    String stepsJson(int prisoner, int[] boxes, int[] hiddenNumbers, int count) {
+        var out = beginJson("steps").append(",\"prisonerNumber\":").append(prisoner).append(",\"steps\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('[').append(boxes[i]).append(',').append(hiddenNumbers[i]).append(']');
+        }
+        return out.append("]}").toString();
+    }
+
+    String resultJson(boolean success) {
+        return beginJson("result").append(",\"success\":").append(success).append('}').toString();
+    }
+
+    String summaryJson(int[] prisoners, int[] opened, boolean[] found, int count) {
+        var out = beginJson("summary").append(",\"prisoners\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('[').append(prisoners[i]).append(',').append(opened[i]).append(',').append(found[i] ? 1 : 0)
+                .append(']');
+        }
+        return out.append("]}").toString();
+    }
+
+    String statsJson(SimulationConfig config, TrialCounts progress, boolean done, int binWidth, long[] histogram) {
+        double successRate = progress.trials() > 0 ? progress.successes() * 100.0 / progress.trials() : 0.0;
+        var out = beginJson("stats")
+            .append(",\"done\":").append(done)
+            .append(",\"trials\":").append(config.trials())
+            .append(",\"completed\":").append(progress.trials())
+            .append(",\"successes\":").append(progress.successes())
+            .append(",\"successRate\":").append(successRate)
+            .append(",\"exactSuccessRate\":").append(config.exactSuccessProbability() * 100.0)
+            .append(",\"limit\":").append(config.limit())
+            .append(",\"binWidth\":").append(binWidth)
+            .append(",\"histogram\":[");
+        for (int i = 0; i < histogram.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(histogram[i]);
+        }
+        return out.append("]}").toString();
+    }
+
+    String replayJson(boolean success, int limit, int[] hiddenNumbers) {
+        var out = beginJson("replay").append(",\"success\":").append(success).append(",\"limit\":").append(limit)
+            .append(",\"hiddenNumbers\":[");
+        for (int i = 0; i < hiddenNumbers.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(hiddenNumbers[i]);
+        }
+        return out.append("]}").toString();
+    }
+
+    private ByteBuffer begin(int ints) {
+        int bytes = Integer.BYTES * ints + (timestamps ? Long.BYTES : 0);
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(Math.max(bytes, 2 * buffer.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return buffer.clear();
+    }
+
+    private ByteBuffer end() {
+        if (timestamps) {
+            buffer.putLong(StepProtocol.epochMicros());
+        }
+        return buffer.flip();
+    }
+
+    private StringBuilder beginJson(String type) {
+        text.setLength(0);
+        return text.append("{\"type\":\"").append(type).append('"');
+    }
+}
@@ -0,0 +1,278 @@
+package prisoners;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Size-bounded LRU cache of {@link SimulationResult}s keyed by their {@link SimulationConfig}, optionally
+ * backed by a directory so results survive across CLI invocations.
+ *
+ * <p>
+ * Only deterministic (seeded) configurations are cached: an unseeded run is a fresh sample every time.
+ * Results are computed outside the lock, so two threads racing on the same key may both simulate it once.
+ *
+ * <p>
+ * The directory holds at most as many results as the memory, independently of it: the files already there are
+ * indexed by age when the cache is created, and the least recently used ones are deleted, outside the lock,
+ * whenever a new result would exceed the bound. Results written by earlier runs count against it too.
+ */
+public final class ResultCache {
+
+    private static final Logger logger = Logger.getLogger(ResultCache.class.getName());
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static volatile ResultCache shared;
+
+    private final int maxEntries;
+    private final Path directory;
+    private final Map<SimulationConfig, SimulationResult> entries;
+    // Result files in the directory, least recently used first; guarded by entries
+    private final Set<Path> files = new LinkedHashSet<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResultCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * @param directory where results are persisted, or {@code null} for a purely in-memory cache
+     */
+    public ResultCache(int maxEntries, Path directory) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException(String.format("Cache size must be positive, got: %d", maxEntries));
+        }
+        this.maxEntries = maxEntries;
+        this.directory = directory;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SimulationConfig, SimulationResult> eldest) {
+                return size() > ResultCache.this.maxEntries;
+            }
+        };
+        if (directory != null) {
+            indexDirectory();
+        }
+    }
+
+    /**
+     * Process-wide cache shared by the GUI and the server, configured through the
+     * {@code prisoners.cache.size} and {@code prisoners.cache.dir} system properties.
+     */
+    public static ResultCache shared() {
+        var cache = shared;
+        if (cache == null) {
+            synchronized (ResultCache.class) {
+                cache = shared;
+                if (cache == null) {
+                    var dir = System.getProperty("prisoners.cache.dir");
+                    cache = new ResultCache(Integer.getInteger("prisoners.cache.size", DEFAULT_MAX_ENTRIES),
+                        dir == null ? null : Path.of(dir));
+                    shared = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    public Optional<SimulationResult> get(SimulationConfig config) {
+        if (!config.isDeterministic()) {
+            return Optional.empty();
+        }
+        SimulationResult result;
+        synchronized (entries) {
+            result = entries.get(config);
+            if (result != null && directory != null) {
+                // A memory hit uses the file too; otherwise the hottest results would be the first files evicted
+                var file = fileFor(config);
+                if (files.remove(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        if (result == null) {
+            result = loadFromDisk(config);
+            if (result != null) {
+                List<Path> evicted;
+                synchronized (entries) {
+                    entries.put(config, result);
+                    evicted = fileUsed(fileFor(config));
+                }
+                deleteFiles(evicted);
+            }
+        }
+        (result != null ? hits : misses).increment();
+        return Optional.ofNullable(result);
+    }
+
+    public void put(SimulationResult result) {
+        if (!result.config().isDeterministic()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(result.config(), result);
+        }
+        saveToDisk(result);
+    }
+
+    /**
+     * Returns the cached result for {@code config}, simulating and caching it on a miss.
+     */
+    public SimulationResult computeIfAbsent(SimulationConfig config, Function<SimulationConfig, SimulationResult> simulation) {
+        var cached = get(config);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        var result = simulation.apply(config);
+        put(result);
+        return result;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private Path fileFor(SimulationConfig config) {
+        return directory.resolve(String.format("result-%d-%d-%s-%d-%d.properties",
+            config.prisoners(), config.limit(), config.strategy().name().toLowerCase(),
+            config.seed().getAsLong(), config.trials()));
+    }
+
+    private SimulationResult loadFromDisk(SimulationConfig config) {
+        if (directory == null) {
+            return null;
+        }
+        var file = fileFor(config);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (var reader = Files.newBufferedReader(file)) {
+            var properties = new Properties();
+            properties.load(reader);
+            return new SimulationResult(config, Long.parseLong(properties.getProperty("successes")));
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Ignoring unreadable cache entry " + file, e);
+            return null;
+        }
+    }
+
+    private void saveToDisk(SimulationResult result) {
+        if (directory == null) {
+            return;
+        }
+        var file = fileFor(result.config());
+        var properties = new Properties();
+        properties.setProperty("successes", Long.toString(result.successes()));
+        try {
+            Files.createDirectories(directory);
+            // Write to a temporary file first so concurrent readers never see a partial entry
+            var tmp = Files.createTempFile(directory, "result-", ".tmp");
+            try (var writer = Files.newBufferedWriter(tmp)) {
+                properties.store(writer, result.config().toString());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not persist cache entry " + file, e);
+            return;
+        }
+        List<Path> evicted;
+        synchronized (entries) {
+            evicted = fileUsed(file);
+        }
+        deleteFiles(evicted);
+    }
+
+    /**
+     * Indexes the results earlier runs left in the directory, oldest first, and deletes those beyond the bound.
+     */
+    private void indexDirectory() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> found;
+        try (var listing = Files.list(directory)) {
+            found = listing
+                .filter(file -> {
+                    var name = file.getFileName().toString();
+                    return name.startsWith("result-") && name.endsWith(".properties");
+                })
+                .sorted(Comparator.comparing(ResultCache::lastModified))
+                .toList();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not index cache directory " + directory, e);
+            return;
+        }
+        List<Path> evicted;
+        synchronized (entries) {
+            files.addAll(found);
+            evicted = trimFiles();
+        }
+        deleteFiles(evicted);
+    }
+
+    /**
+     * Marks a result file as most recently used; the caller holds the lock.
+     *
+     * @return the files that no longer fit, to be deleted once the lock is released
+     */
+    private List<Path> fileUsed(Path file) {
+        files.remove(file);
+        files.add(file);
+        return trimFiles();
+    }
+
+    private List<Path> trimFiles() {
+        var evicted = new ArrayList<Path>();
+        var eldest = files.iterator();
+        while (files.size() > maxEntries) {
+            evicted.add(eldest.next());
+            eldest.remove();
+        }
+        return evicted;
+    }
+
+    private static void deleteFiles(List<Path> evicted) {
+        for (var file : evicted) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Could not evict cache entry " + file, e);
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package prisoners;
+
+import java.util.Objects;
+import java.util.OptionalLong;
+
+/**
+ * Immutable description of a Monte Carlo run: how many prisoners, how many boxes each may open,
+ * which strategy they follow, the optional seed and the number of trials.
+ *
+ * <p>
+ * Seeded configurations are fully deterministic, which makes them safe keys for {@link ResultCache}.
+ */
+public record SimulationConfig(
+    int prisoners,
+    int limit,
+    Strategy strategy,
+    OptionalLong seed,
+    long trials
+) {
+
+    public SimulationConfig {
+        Objects.requireNonNull(strategy, "strategy");
+        Objects.requireNonNull(seed, "seed");
+        if (prisoners < 2 || prisoners % 2 != 0) {
+            throw new IllegalArgumentException(String.format(
+                "Number of prisoners must be even and at least 2 (got: %d)", prisoners));
+        }
+        if (limit < 1 || limit > prisoners) {
+            throw new IllegalArgumentException(String.format(
+                "Boxes per prisoner must be between 1 and %d (got: %d)", prisoners, limit));
+        }
+        if (trials < 1) {
+            throw new IllegalArgumentException(String.format("Number of trials must be positive (got: %d)", trials));
+        }
+    }
+
+    /**
+     * The classic setup: chain-following prisoners who may open half of the boxes.
+     */
+    public static SimulationConfig classic(int prisoners, long trials) {
+        return new SimulationConfig(prisoners, prisoners / 2, Strategy.CHAIN_FOLLOWING, OptionalLong.empty(), trials);
+    }
+
+    public SimulationConfig withSeed(long seed) {
+        return new SimulationConfig(prisoners, limit, strategy, OptionalLong.of(seed), trials);
+    }
+
+    public SimulationConfig withTrials(long trials) {
+        return new SimulationConfig(prisoners, limit, strategy, seed, trials);
+    }
+
+    /**
+     * Box openings of one trial, at most: every prisoner opens up to {@code limit} boxes, so a trial costs up to
+     * {@code prisoners * limit}, i.e. quadratic in the number of prisoners.
+     */
+    public long trialCost() {
+        return (long) prisoners * limit;
+    }
+
+    public boolean isDeterministic() {
+        return seed.isPresent();
+    }
+
+    /**
+     * Exact probability that every prisoner finds their number, independent of any simulation.
+     *
+     * <p>
+     * With the chain strategy a prisoner succeeds iff their cycle is at most {@code limit} long, so everyone
+     * succeeds iff the permutation has no longer cycle. The probability {@code a(n)} that a random permutation
+     * of {@code n} has all cycles of length at most {@code m} satisfies
+     * {@code n * a(n) = a(n-1) + ... + a(n-m)}, evaluated here with a running window sum.
+     */
+    public double exactSuccessProbability() {
+        return switch (strategy) {
+            case RANDOM -> Math.pow((double) limit / prisoners, prisoners);
+            case CHAIN_FOLLOWING -> {
+                var a = new double[prisoners + 1];
+                a[0] = 1.0;
+                double window = 0.0;
+                for (int n = 1; n <= prisoners; n++) {
+                    window += a[n - 1];
+                    if (n - 1 - limit >= 0) {
+                        window -= a[n - 1 - limit];
+                    }
+                    a[n] = window / n;
+                }
+                yield a[prisoners];
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SimulationConfig[prisoners=%d, limit=%d, strategy=%s, seed=%s, trials=%d]",
+            prisoners, limit, strategy, seed.isPresent() ? seed.getAsLong() : "random", trials);
+    }
+}
@@ -0,0 +1,145 @@
+package prisoners;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder events emitted by {@link FreedomExperiment} and {@link SimulationRunner}.
+ *
+ * <p>
+ * Only one trial in {@link #SAMPLE_EVERY} (system property {@code prisoners.jfr.sampleEvery}, default 64)
+ * records trial, phase and listener stall events, and only one {@link SimulationRunner} run in as many records a
+ * simulation event, so the recorder can stay on during long runs. The count is shared by every experiment and
+ * runner in the JVM: job chunks, work units and web sessions each create their own, and would otherwise all be
+ * recorded from their first trial. A stall is the
+ * time a listener blocks the experiment outside its deliberate pacing ({@link StepListener#pace()}) and is only
+ * committed above its threshold. Record with e.g.
+ * {@code java -XX:StartFlightRecording:filename=prisoners.jfr -jar target/100-prisoners-1.0.jar}.
+ */
+final class SimulationEvents {
+
+    static final int SAMPLE_EVERY = Math.max(1, Integer.getInteger("prisoners.jfr.sampleEvery", 64));
+
+    private static final String CATEGORY = "100 Prisoners";
+
+    private static final AtomicLong trials = new AtomicLong();
+    private static final AtomicLong simulations = new AtomicLong();
+
+    private SimulationEvents() {
+    }
+
+    /**
+     * Whether the trial about to run is one to record. Never while Flight Recorder has not been started, so
+     * the shared count costs nothing then.
+     */
+    static boolean sampleTrial() {
+        return FlightRecorder.isInitialized() && trials.getAndIncrement() % SAMPLE_EVERY == 0;
+    }
+
+    /**
+     * Whether the {@link SimulationRunner} run about to start is one to record.
+     */
+    static boolean sampleSimulation() {
+        return FlightRecorder.isInitialized() && simulations.getAndIncrement() % SAMPLE_EVERY == 0;
+    }
+
+    /**
+     * Whether {@link #sampleTrial()} will pick the next trial.
+     */
+    static boolean nextTrialIsSampled() {
+        return trials.get() % SAMPLE_EVERY == 0;
+    }
+
+    @Name("prisoners.Trial")
+    @Label("Trial")
+    @Description("One sampled experiment: shuffle plus every prisoner's search")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Trial extends Event {
+        @Label("Prisoners")
+        int prisoners;
+
+        @Label("Boxes per Prisoner")
+        int limit;
+
+        @Label("Strategy")
+        String strategy;
+
+        @Label("All Escaped")
+        boolean success;
+
+        @Label("Freed Prisoners")
+        int freed;
+
+        @Label("Longest Cycle")
+        int longestCycle;
+    }
+
+    @Name("prisoners.Shuffle")
+    @Label("Shuffle Phase")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Shuffle extends Event {
+        @Label("Prisoners")
+        int prisoners;
+    }
+
+    @Name("prisoners.Evaluate")
+    @Label("Evaluate Phase")
+    @Description("Chain walks or random searches of a sampled trial")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Evaluate extends Event {
+        @Label("Prisoners")
+        int prisoners;
+
+        @Label("All Escaped")
+        boolean success;
+    }
+
+    @Name("prisoners.ListenerStall")
+    @Label("Step Listener Stall")
+    @Description("A StepListener blocked the experiment for longer than the threshold")
+    @Category(CATEGORY)
+    @Threshold("10 ms")
+    static final class ListenerStall extends Event {
+        @Label("Prisoner")
+        int prisoner;
+
+        @Label("Box")
+        int box;
+    }
+
+    @Name("prisoners.Simulation")
+    @Label("Simulation")
+    @Description("A complete SimulationRunner run")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Simulation extends Event {
+        @Label("Prisoners")
+        int prisoners;
+
+        @Label("Boxes per Prisoner")
+        int limit;
+
+        @Label("Strategy")
+        String strategy;
+
+        @Label("Seeded")
+        boolean seeded;
+
+        @Label("Trials")
+        long trials;
+
+        @Label("Successes")
+        long successes;
+    }
+}
@@ -0,0 +1,22 @@
+package prisoners;
+
+/**
+ * Outcome of running a {@link SimulationConfig}: how many of its trials ended with every prisoner free.
+ */
+public record SimulationResult(SimulationConfig config, long successes) {
+
+    public SimulationResult {
+        if (successes < 0 || successes > config.trials()) {
+            throw new IllegalArgumentException(String.format(
+                "Successes must be between 0 and %d (got: %d)", config.trials(), successes));
+        }
+    }
+
+    public long trials() {
+        return config.trials();
+    }
+
+    public double successRate() {
+        return (successes * 100.0) / config.trials();
+    }
+}
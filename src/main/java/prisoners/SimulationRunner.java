@@ -0,0 +1,89 @@
+package prisoners;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+import prisoners.metrics.SimulationMetrics;
+
+/**
+ * Runs the trials of a {@link SimulationConfig} on top of {@link FreedomExperiment}.
+ *
+ * <p>
+ * Every trial is reseeded from {@code (seed, trialIndex)}, so a seeded configuration always produces the
+ * same result no matter how its trials are grouped or which thread runs them.
+ */
+public final class SimulationRunner {
+
+    public SimulationResult run(SimulationConfig config) {
+        return run(config, () -> {});
+    }
+
+    /**
+     * Runs all trials, invoking {@code onTrial} after each one (e.g. to advance a progress bar).
+     */
+    public SimulationResult run(SimulationConfig config, Runnable onTrial) {
+        long baseSeed = config.seed().orElseGet(() -> ThreadLocalRandom.current().nextLong());
+        var counts = runTrials(config, baseSeed, 0, config.trials(), (experiment, success) -> onTrial.run());
+        return new SimulationResult(config, counts.successes());
+    }
+
+    /**
+     * Runs trials {@code [fromTrial, toTrial)} of a configuration whose trials derive from {@code baseSeed}.
+     * Splitting a run into ranges and merging their counts gives exactly the result of one full run. Stops
+     * early, with the counts of the trials run so far, once {@link TrialObserver#isStopRequested()}.
+     */
+    public TrialCounts runTrials(SimulationConfig config, long baseSeed, long fromTrial, long toTrial,
+            TrialObserver observer) {
+        boolean recording = SimulationEvents.sampleSimulation();
+        var event = new SimulationEvents.Simulation();
+        event.begin();
+
+        var metrics = SimulationMetrics.get();
+        long allocatedBefore = metrics.currentThreadAllocatedBytes();
+
+        var experiment = newExperiment(config);
+
+        long successes = 0;
+        long trial = fromTrial;
+        for (; trial < toTrial && !observer.isStopRequested(); trial++) {
+            metrics.trialStarted();
+            long start = System.nanoTime();
+            experiment.reseed(trialSeed(baseSeed, trial));
+            boolean success = experiment.run();
+            metrics.recordTrial(System.nanoTime() - start, success);
+            if (success) {
+                successes++;
+            }
+            observer.trialFinished(experiment, success);
+        }
+        long trials = trial - fromTrial;
+        metrics.recordAllocation(allocatedBefore, metrics.currentThreadAllocatedBytes(), trials);
+
+        event.end();
+        if (recording && event.shouldCommit()) {
+            event.prisoners = config.prisoners();
+            event.limit = config.limit();
+            event.strategy = config.strategy().name();
+            event.seeded = config.isDeterministic();
+            event.trials = trials;
+            event.successes = successes;
+            event.commit();
+        }
+        return new TrialCounts(trials, successes);
+    }
+
+    static FreedomExperiment newExperiment(SimulationConfig config) {
+        return new FreedomExperiment(config.prisoners(), config.limit(), config.strategy(),
+            new SplittableRandom(config.seed().orElse(0L)));
+    }
+
+    /**
+     * Derives an independent seed for one trial (SplitMix64 finalizer over the golden-ratio sequence).
+     */
+    static long trialSeed(long seed, long trial) {
+        long z = seed + (trial + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
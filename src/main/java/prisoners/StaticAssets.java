@@ -0,0 +1,205 @@
+package prisoners;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+/**
+ * The files of the web page, read from the classpath once at startup and served from memory, in front of every
+ * other handler of the server.
+ *
+ * <p>
+ * Each file is kept as it is and, when that is smaller, gzipped at the best compression level, so nothing is
+ * compressed per request. Responses carry a strong ETag per representation: a browser revalidating a file it
+ * already has gets a 304 without a body. The page itself must be revalidated on every visit, so a new version
+ * shows up at once; the files it loads may be used for {@link #MAX_AGE_SECONDS} without asking.
+ */
+final class StaticAssets extends HandlerWrapper {
+
+    /**
+     * Classpath resources served; those under {@code /public} are served from the root.
+     */
+    static final List<String> RESOURCES =
+        List.of("/public/index.html", "/public/script.js", "/public/styles.css", "/icons/prisoner.svg");
+    static final int MAX_AGE_SECONDS = 600;
+
+    /**
+     * One file in both its representations.
+     *
+     * @param gzipped the gzipped bytes, or {@code null} if compressing does not make the file smaller
+     */
+    record Asset(String contentType, String cacheControl, byte[] bytes, String etag, byte[] gzipped,
+            String gzipEtag) {
+
+        /**
+         * Whether an {@code If-None-Match} header names {@code etag}, i.e. the client already has that
+         * representation.
+         */
+        static boolean notModified(String ifNoneMatch, String etag) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (var tag : ifNoneMatch.split(",")) {
+                var trimmed = tag.strip();
+                if (trimmed.equals("*") || trimmed.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Map<String, Asset> assets;
+
+    private StaticAssets(Map<String, Asset> assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * Reads and compresses every file in {@link #RESOURCES}.
+     *
+     * @throws IllegalStateException if one of them is missing from the classpath
+     */
+    static StaticAssets load() {
+        var assets = new HashMap<String, Asset>();
+        for (var resource : RESOURCES) {
+            var path = resource.startsWith("/public/") ? resource.substring("/public".length()) : resource;
+            var asset = asset(path, read(resource));
+            assets.put(path, asset);
+            if (path.equals("/index.html")) {
+                assets.put("/", asset);
+            }
+        }
+        return new StaticAssets(Map.copyOf(assets));
+    }
+
+    /**
+     * The file served at {@code path}, e.g. {@code /script.js}.
+     */
+    Optional<Asset> get(String path) {
+        return Optional.ofNullable(assets.get(path));
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        var asset = assets.get(target);
+        boolean head = "HEAD".equals(request.getMethod());
+        if (asset == null || !(head || "GET".equals(request.getMethod()))) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+        baseRequest.setHandled(true);
+        boolean gzip = asset.gzipped() != null && acceptsGzip(request.getHeader("Accept-Encoding"));
+        var etag = gzip ? asset.gzipEtag() : asset.etag();
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", asset.cacheControl());
+        response.setHeader("Vary", "Accept-Encoding");
+        if (Asset.notModified(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        var body = gzip ? asset.gzipped() : asset.bytes();
+        response.setContentType(asset.contentType());
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.setContentLength(body.length);
+        if (!head) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip, e.g. {@code gzip, deflate, br}.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (var coding : acceptEncoding.split(",")) {
+            var parts = coding.split(";");
+            var name = parts[0].strip();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                // "gzip;q=0" refuses it
+                return parts.length < 2 || !parts[1].strip().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    static Asset asset(String path, byte[] bytes) {
+        var gzipped = gzip(bytes);
+        var hash = hash(bytes);
+        var etag = '"' + hash + '"';
+        var cacheControl = path.endsWith(".html") ? "no-cache" : "public, max-age=" + MAX_AGE_SECONDS;
+        return gzipped.length < bytes.length
+            ? new Asset(contentType(path), cacheControl, bytes, etag, gzipped, '"' + hash + "-gzip\"")
+            : new Asset(contentType(path), cacheControl, bytes, etag, null, null);
+    }
+
+    private static String contentType(String path) {
+        var extension = path.substring(path.lastIndexOf('.') + 1);
+        return switch (extension) {
+            case "html" -> "text/html; charset=utf-8";
+            case "js" -> "text/javascript; charset=utf-8";
+            case "css" -> "text/css; charset=utf-8";
+            case "svg" -> "image/svg+xml";
+            default -> "application/octet-stream";
+        };
+    }
+
+    /**
+     * The content's hash, from which the strong ETags are built, so they only change when the file does.
+     */
+    private static String hash(byte[] bytes) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JDK has SHA-256
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        var out = new ByteArrayOutputStream(bytes.length);
+        try (var gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] read(String resource) {
+        try (var in = StaticAssets.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource: " + resource);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
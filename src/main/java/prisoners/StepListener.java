@@ -4,4 +4,11 @@ public interface StepListener {
 
     public void onStep(Prisoner p, Box b);
 
+    /**
+     * Called after every {@link #onStep}; a listener that deliberately holds the experiment back, e.g. to pace
+     * an animation, waits here rather than in {@code onStep}, so the wait is not reported as a stall.
+     */
+    public default void pace() {
+    }
+
 }
@@ -0,0 +1,123 @@
+package prisoners;
+
+import java.time.Instant;
+
+/**
+ * Wire format of the experiments streamed to WebSocket clients. Steps are batched: one message carries
+ * every box a prisoner opened, instead of one message per box. In turbo mode the steps are coalesced further
+ * into one summary line per prisoner. In statistics mode no steps are sent at all, only periodic aggregates.
+ * In replay mode a whole trial goes out as one message: the permutation hidden in the boxes, from which the
+ * client replays the chain strategy itself.
+ *
+ * <p>
+ * Binary frames are sequences of little-endian 32-bit ints, starting with the message type:
+ *
+ * <pre>
+ * STEPS:   [1, prisoner, count, box_1, hidden_1, ..., box_count, hidden_count]
+ * RESULT:  [2, success (0 or 1)]
+ * SUMMARY: [3, count, prisoner_1, opened_1, found_1 (0 or 1), ..., prisoner_count, opened_count, found_count]
+ * STATS:   [4, done (0 or 1), trials, completed, successes, limit, binWidth, binCount, bin_1, ..., bin_binCount]
+ * REPLAY:  [5, success (0 or 1), limit, prisoners, hidden_1, ..., hidden_prisoners]
+ * </pre>
+ *
+ * The JSON fallback sends the same messages as text:
+ * {@code {"type":"steps","prisonerNumber":7,"steps":[[7,42],[42,7]]}},
+ * {@code {"type":"result","success":true}},
+ * {@code {"type":"summary","prisoners":[[1,12,1],[2,50,0]]}},
+ * {@code {"type":"stats","done":false,"trials":1000,"completed":400,"successes":125,...,"histogram":[...]}} and
+ * {@code {"type":"replay","success":false,"limit":2,"hiddenNumbers":[3,1,4,2]}}.
+ * A session started with {@code "timestamps":true} appends the time each binary frame was sent, as a
+ * little-endian 64-bit count of microseconds since the epoch, so load tests can measure delivery latency.
+ * Decoders that read by offset and count ignore the extra bytes.
+ *
+ * <p>
+ * Errors, and the confirmation of joining a room, are always sent as JSON text:
+ * {@code {"type":"error","message":"..."}} and {@code {"type":"room","room":"demo","prisoners":100,"viewers":3}}.
+ *
+ * <p>
+ * Streamed messages are written by a {@link MessageEncoder}; clients control their session with
+ * {@link ControlMessage}s.
+ */
+final class StepProtocol {
+
+    static final int STEPS = 1;
+    static final int RESULT = 2;
+    static final int SUMMARY = 3;
+    static final int STATS = 4;
+    static final int REPLAY = 5;
+
+    enum Format {
+        JSON,
+        BINARY;
+
+        static Format parse(String value) {
+            return switch (value.trim().toLowerCase()) {
+                case "json" -> JSON;
+                case "binary" -> BINARY;
+                default -> throw new IllegalArgumentException(
+                    String.format("Unknown format: %s (expected: json, binary)", value));
+            };
+        }
+    }
+
+    private StepProtocol() {
+    }
+
+    static long epochMicros() {
+        var now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+    }
+
+    /**
+     * Bytes {@code text} takes on the wire, which is UTF-8 encoded; cheaper than encoding it.
+     */
+    static int utf8Length(String text) {
+        int bytes = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Two bytes up to U+07FF, three above; a surrogate pair takes four bytes for its two chars
+                bytes += c < 0x800 || Character.isSurrogate(c) ? 1 : 2;
+            }
+        }
+        return bytes;
+    }
+
+    static String roomJson(String room, int prisoners, int viewers) {
+        var out = new StringBuilder(64).append("{\"type\":\"room\",\"room\":");
+        appendString(out, room);
+        return out.append(",\"prisoners\":").append(prisoners).append(",\"viewers\":").append(viewers).append('}')
+            .toString();
+    }
+
+    static String errorJson(String message) {
+        var out = new StringBuilder(64).append("{\"type\":\"error\",\"message\":");
+        appendString(out, String.valueOf(message));
+        return out.append('}').toString();
+    }
+
+    /**
+     * Appends {@code value} as a JSON string literal.
+     */
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,31 @@
+package prisoners;
+
+/**
+ * The search strategies a prisoner can follow when opening boxes.
+ *
+ * @see https://en.wikipedia.org/wiki/100_prisoners_problem
+ */
+public enum Strategy {
+
+    /**
+     * Start with the box labelled with your own number and follow the chain of hidden numbers.
+     */
+    CHAIN_FOLLOWING,
+
+    /**
+     * Open distinct boxes chosen uniformly at random (the naive strategy).
+     */
+    RANDOM;
+
+    /**
+     * Lenient parser for command line and HTTP parameters ("chain", "random", "CHAIN_FOLLOWING", ...).
+     */
+    public static Strategy parse(String value) {
+        return switch (value.trim().toLowerCase().replace('-', '_')) {
+            case "chain", "chain_following" -> CHAIN_FOLLOWING;
+            case "random" -> RANDOM;
+            default -> throw new IllegalArgumentException(
+                String.format("Unknown strategy: %s (expected: chain, random)", value));
+        };
+    }
+}
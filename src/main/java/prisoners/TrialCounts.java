@@ -0,0 +1,21 @@
+package prisoners;
+
+/**
+ * Mergeable tally of a block of trials. Blocks simulated on different threads or processes are combined
+ * with {@link #merge(TrialCounts)}; the order of merging does not matter.
+ */
+public record TrialCounts(long trials, long successes) {
+
+    public static final TrialCounts EMPTY = new TrialCounts(0, 0);
+
+    public TrialCounts {
+        if (trials < 0 || successes < 0 || successes > trials) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid trial counts: %d successes in %d trials", successes, trials));
+        }
+    }
+
+    public TrialCounts merge(TrialCounts other) {
+        return new TrialCounts(trials + other.trials, successes + other.successes);
+    }
+}
@@ -0,0 +1,28 @@
+package prisoners;
+
+/**
+ * Callback after every trial of a {@link SimulationRunner} run, e.g. to advance a progress bar or to collect
+ * statistics beyond the success count.
+ *
+ * <p>
+ * Chunks of one run may be simulated on several threads at once, so observers shared between chunks must be
+ * thread-safe.
+ */
+@FunctionalInterface
+public interface TrialObserver {
+
+    TrialObserver NONE = (experiment, success) -> {};
+
+    /**
+     * @param experiment still holds the permutation of the finished trial (see {@link FreedomExperiment#longestCycle()})
+     */
+    void trialFinished(FreedomExperiment experiment, boolean success);
+
+    /**
+     * Checked before every trial; once it returns {@code true} the run stops early and reports only the trials
+     * it finished, e.g. because its job was cancelled.
+     */
+    default boolean isStopRequested() {
+        return false;
+    }
+}
@@ -0,0 +1,218 @@
+package prisoners;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketException;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.common.WebSocketSession;
+import org.eclipse.jetty.websocket.common.extensions.ExtensionStack;
+
+import prisoners.metrics.DeliveryMetrics;
+
+/**
+ * One WebSocket client as the experiments see it: a place to send messages that knows how much it still has to
+ * write.
+ *
+ * <p>
+ * Every message is sent asynchronously, so neither an experiment thread nor a room broadcast ever waits for a
+ * slow client, and any thread may send at any time. Jetty keeps the frames queued until the socket takes them;
+ * this class counts them, which is what the send queue watermark of {@link ExperimentSession} and
+ * {@link ExperimentRoom} is measured against.
+ */
+final class ViewerConnection {
+
+    private static final ByteBuffer PING = ByteBuffer.allocate(0);
+    // Marks a message whose delivery is not timed
+    private static final long UNTIMED = Long.MIN_VALUE;
+
+    private final Session session;
+    private final AtomicInteger queuedFrames = new AtomicInteger();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private volatile long lastPong = System.nanoTime();
+
+    ViewerConnection(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Queues a text message.
+     *
+     * @return {@code false} if the connection is closed and the message was dropped
+     */
+    boolean send(String text) {
+        return send(text, UNTIMED);
+    }
+
+    /**
+     * Queues a text message and, once Jetty has written it, records the time since {@code produced} (a
+     * {@link System#nanoTime()}) as step delivery latency.
+     *
+     * @return {@code false} if the connection is closed and the message was dropped
+     */
+    boolean sendStep(String text, long produced) {
+        return send(text, produced);
+    }
+
+    /**
+     * Queues a copy of a binary step message; see {@link #sendStep(String, long)}.
+     *
+     * @return {@code false} if the connection is closed and the message was dropped
+     */
+    boolean sendStep(ByteBuffer frame, long produced) {
+        return send(ByteBuffer.allocate(frame.remaining()).put(frame).flip(), produced);
+    }
+
+    private boolean send(String text, long produced) {
+        var callback = new Queued(StepProtocol.utf8Length(text), produced);
+        try {
+            session.getRemote().sendString(text, callback);
+            return true;
+        } catch (WebSocketException e) {
+            callback.writeFailed(e);
+            return false;
+        }
+    }
+
+    /**
+     * Queues a copy of a binary message; {@code frame} itself may be reused as soon as this returns.
+     *
+     * @return {@code false} if the connection is closed and the message was dropped
+     */
+    boolean send(ByteBuffer frame) {
+        return sendShared(ByteBuffer.allocate(frame.remaining()).put(frame).flip());
+    }
+
+    /**
+     * Queues a binary message that is never modified again, e.g. one broadcast to a whole room.
+     *
+     * @return {@code false} if the connection is closed and the message was dropped
+     */
+    boolean sendShared(ByteBuffer frame) {
+        return send(frame, UNTIMED);
+    }
+
+    private boolean send(ByteBuffer frame, long produced) {
+        var payload = frame.duplicate();
+        var callback = new Queued(payload.remaining(), produced);
+        try {
+            session.getRemote().sendBytes(payload, callback);
+            return true;
+        } catch (WebSocketException e) {
+            callback.writeFailed(e);
+            return false;
+        }
+    }
+
+    /**
+     * Messages queued for writing but not yet flushed to the socket.
+     */
+    int queuedFrames() {
+        return queuedFrames.get();
+    }
+
+    /**
+     * Payload bytes queued for writing but not yet flushed to the socket.
+     */
+    long queuedBytes() {
+        return queuedBytes.get();
+    }
+
+    boolean isOpen() {
+        return session.isOpen();
+    }
+
+    String remoteAddress() {
+        return String.valueOf(session.getRemoteAddress());
+    }
+
+    void close(int status, String reason) {
+        session.close(status, reason);
+    }
+
+    /**
+     * Drops the connection without a close handshake, for clients that no longer answer.
+     */
+    void disconnect() {
+        try {
+            session.disconnect();
+        } catch (IOException e) {
+            // gone anyway
+        }
+    }
+
+    /**
+     * Asks the client for a pong, which proves it is still there (see {@link #isLost(Duration)}).
+     */
+    void ping() {
+        try {
+            session.getRemote().sendPing(PING.duplicate());
+        } catch (Exception e) {
+            // closing anyway
+        }
+    }
+
+    void pongReceived() {
+        lastPong = System.nanoTime();
+    }
+
+    /**
+     * Whether the client has not answered a ping for {@code timeout}.
+     */
+    boolean isLost(Duration timeout) {
+        return System.nanoTime() - lastPong > timeout.toNanos();
+    }
+
+    /**
+     * The compression the client negotiated, if any.
+     */
+    Optional<DeflateExtension> deflate() {
+        if (session instanceof WebSocketSession webSocket && webSocket.getOutgoingHandler() instanceof ExtensionStack stack) {
+            for (var extension : stack.getExtensions()) {
+                if (extension instanceof DeflateExtension deflate) {
+                    return Optional.of(deflate);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Counts a message from the moment it is queued until Jetty has written or dropped it.
+     */
+    private final class Queued implements WriteCallback {
+
+        private final int bytes;
+        private final long produced;
+
+        Queued(int bytes, long produced) {
+            this.bytes = bytes;
+            this.produced = produced;
+            queuedFrames.incrementAndGet();
+            queuedBytes.addAndGet(bytes);
+        }
+
+        @Override
+        public void writeSuccess() {
+            if (produced != UNTIMED) {
+                DeliveryMetrics.get().recordStepLatency(System.nanoTime() - produced);
+            }
+            done();
+        }
+
+        @Override
+        public void writeFailed(Throwable cause) {
+            done();
+        }
+
+        private void done() {
+            queuedFrames.decrementAndGet();
+            queuedBytes.addAndGet(-bytes);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package prisoners;
+
+import java.util.function.Consumer;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+/**
+ * Creates the embedded Jetty server behind Spark with a pool of virtual threads, so HTTP requests and WebSocket
+ * callbacks that block (a synchronous simulation, a full send queue) park cheaply instead of holding one of a
+ * few hundred platform threads. The pool size still bounds how many requests are handled at once; set it with
+ * {@code Spark.threadPool(maxThreads, minThreads, idleTimeoutMillis)}.
+ */
+final class VirtualThreadJettyFactory implements JettyServerFactory {
+
+    static final int DEFAULT_MAX_THREADS = 1024;
+    static final int DEFAULT_MIN_THREADS = 8;
+    static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+
+    private final Consumer<Server> beforeStart;
+
+    /**
+     * @param beforeStart called once Spark has installed its handlers and connectors, right before the server
+     *                    starts listening
+     */
+    VirtualThreadJettyFactory(Consumer<Server> beforeStart) {
+        this.beforeStart = beforeStart;
+    }
+
+    /**
+     * Called by Spark with the values of {@code Spark.threadPool}, or -1 for those not set.
+     */
+    @Override
+    public Server create(int maxThreads, int minThreads, int idleTimeoutMillis) {
+        int max = maxThreads > 0 ? maxThreads : DEFAULT_MAX_THREADS;
+        int min = minThreads > 0 ? Math.min(minThreads, max) : Math.min(DEFAULT_MIN_THREADS, max);
+        int idle = idleTimeoutMillis > 0 ? idleTimeoutMillis : DEFAULT_IDLE_TIMEOUT_MILLIS;
+        // No reserved threads: they exist to avoid the cost of handing work to a new platform thread
+        var pool = new QueuedThreadPool(max, min, idle, 0, null, null, Thread.ofVirtual().factory());
+        pool.setName("http");
+        return create(pool);
+    }
+
+    @Override
+    public Server create(ThreadPool threadPool) {
+        var server = new Server(threadPool);
+        server.addLifeCycleListener(new LifeCycle.Listener() {
+            @Override
+            public void lifeCycleStarting(LifeCycle event) {
+                beforeStart.accept(server);
+            }
+        });
+        return server;
+    }
+}
@@ -0,0 +1,94 @@
+package prisoners.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.OptionalLong;
+
+import prisoners.SimulationConfig;
+import prisoners.Strategy;
+import prisoners.TrialCounts;
+
+/**
+ * Binary wire format between {@link Coordinator} and {@link Worker} over a plain TCP socket.
+ *
+ * <pre>
+ * worker      -> coordinator : HELLO  magic:int version:int
+ * coordinator -> worker      : WORK   unitId:long prisoners:int limit:int strategy:byte seeded:boolean
+ *                                     seed:long trials:long baseSeed:long from:long to:long
+ * worker      -> coordinator : RESULT unitId:long trials:long successes:long
+ * coordinator -> worker      : DONE
+ * </pre>
+ */
+final class ClusterProtocol {
+
+    static final int MAGIC = 0x50524953; // "PRIS"
+    static final int VERSION = 1;
+
+    static final byte WORK = 1;
+    static final byte RESULT = 2;
+    static final byte DONE = 3;
+
+    private ClusterProtocol() {
+    }
+
+    static void writeHello(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.flush();
+    }
+
+    static void readHello(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != MAGIC || version != VERSION) {
+            throw new ProtocolException(String.format("Unexpected handshake: magic=%x version=%d", magic, version));
+        }
+    }
+
+    static void writeWork(DataOutputStream out, WorkUnit unit) throws IOException {
+        var config = unit.config();
+        out.writeByte(WORK);
+        out.writeLong(unit.id());
+        out.writeInt(config.prisoners());
+        out.writeInt(config.limit());
+        out.writeByte(config.strategy().ordinal());
+        out.writeBoolean(config.isDeterministic());
+        out.writeLong(config.seed().orElse(0L));
+        out.writeLong(config.trials());
+        out.writeLong(unit.baseSeed());
+        out.writeLong(unit.fromTrial());
+        out.writeLong(unit.toTrial());
+        out.flush();
+    }
+
+    /**
+     * Reads the body of a WORK message whose type byte has already been consumed.
+     */
+    static WorkUnit readWork(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        int prisoners = in.readInt();
+        int limit = in.readInt();
+        var strategy = Strategy.values()[in.readUnsignedByte()];
+        boolean seeded = in.readBoolean();
+        long seed = in.readLong();
+        long trials = in.readLong();
+        var config = new SimulationConfig(prisoners, limit, strategy,
+            seeded ? OptionalLong.of(seed) : OptionalLong.empty(), trials);
+        return new WorkUnit(id, config, in.readLong(), in.readLong(), in.readLong(), 0);
+    }
+
+    static void writeResult(DataOutputStream out, long unitId, TrialCounts counts) throws IOException {
+        out.writeByte(RESULT);
+        out.writeLong(unitId);
+        out.writeLong(counts.trials());
+        out.writeLong(counts.successes());
+        out.flush();
+    }
+
+    static void writeDone(DataOutputStream out) throws IOException {
+        out.writeByte(DONE);
+        out.flush();
+    }
+}
@@ -0,0 +1,193 @@
+package prisoners.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import prisoners.SimulationConfig;
+import prisoners.SimulationResult;
+import prisoners.TrialCounts;
+
+/**
+ * Splits a simulation into {@link WorkUnit}s and hands them to {@link Worker} processes over TCP.
+ *
+ * <p>
+ * Units from a worker that disconnects or misbehaves go back to the queue and are retried by another worker
+ * (up to {@link #MAX_ATTEMPTS} times). Because trials are seeded by index, the merged result is identical to
+ * a single-process {@link prisoners.SimulationRunner} run with the same seed.
+ */
+public final class Coordinator {
+
+    private static final Logger logger = Logger.getLogger(Coordinator.class.getName());
+
+    static final int MAX_ATTEMPTS = 5;
+
+    private final SimulationConfig config;
+    private final long chunkSize;
+    private final int resultTimeoutMs;
+
+    public Coordinator(SimulationConfig config, long chunkSize) {
+        this(config, chunkSize, 0);
+    }
+
+    /**
+     * @param resultTimeoutMs how long to wait for one unit's result before giving the unit to someone else
+     *                        (0 waits forever and relies on the connection dropping)
+     */
+    public Coordinator(SimulationConfig config, long chunkSize, int resultTimeoutMs) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(String.format("Chunk size must be positive, got: %d", chunkSize));
+        }
+        this.config = config;
+        this.chunkSize = chunkSize;
+        this.resultTimeoutMs = resultTimeoutMs;
+    }
+
+    /**
+     * Accepts workers on {@code serverSocket} until every unit has a result, then closes it.
+     *
+     * @param onTrials called with the number of trials in each completed unit (e.g. for a progress bar)
+     */
+    public SimulationResult run(ServerSocket serverSocket, LongConsumer onTrials) throws IOException, InterruptedException {
+        long baseSeed = config.seed().orElseGet(() -> ThreadLocalRandom.current().nextLong());
+
+        var pending = new LinkedBlockingDeque<WorkUnit>();
+        long unitId = 0;
+        for (long from = 0; from < config.trials(); from += chunkSize) {
+            pending.add(new WorkUnit(unitId++, config, baseSeed, from, Math.min(config.trials(), from + chunkSize), 0));
+        }
+
+        var run = new Run(pending, unitId, onTrials);
+        var connections = new ConcurrentLinkedQueue<Thread>();
+        var acceptor = Thread.ofPlatform().name("coordinator-acceptor").daemon().start(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    var socket = serverSocket.accept();
+                    connections.add(Thread.ofVirtual()
+                            .name("coordinator-" + socket.getRemoteSocketAddress())
+                            .start(() -> run.serve(socket)));
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        logger.log(Level.WARNING, "Accepting worker failed", e);
+                    }
+                }
+            }
+        });
+
+        try {
+            var counts = run.completion.get();
+            return new SimulationResult(config, counts.successes());
+        } catch (ExecutionException e) {
+            throw new IOException("Distributed run failed", e.getCause());
+        } finally {
+            serverSocket.close();
+            acceptor.join();
+            // Let connected workers receive DONE before the caller (possibly) exits the JVM
+            for (var connection : connections) {
+                connection.join(Duration.ofSeconds(2));
+            }
+        }
+    }
+
+    /**
+     * State of one distributed run, shared by all worker connections.
+     */
+    private final class Run {
+        private final LinkedBlockingDeque<WorkUnit> pending;
+        private final Map<Long, TrialCounts> results = new ConcurrentHashMap<>();
+        private final long unitCount;
+        private final AtomicLong completedUnits = new AtomicLong();
+        private final LongConsumer onTrials;
+        private final CompletableFuture<TrialCounts> completion = new CompletableFuture<>();
+
+        Run(LinkedBlockingDeque<WorkUnit> pending, long unitCount, LongConsumer onTrials) {
+            this.pending = pending;
+            this.unitCount = unitCount;
+            this.onTrials = onTrials;
+        }
+
+        void serve(Socket socket) {
+            WorkUnit unit = null;
+            try (socket;
+                 var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                 var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(resultTimeoutMs);
+                ClusterProtocol.readHello(in);
+
+                while (!completion.isDone()) {
+                    unit = pending.poll(100, TimeUnit.MILLISECONDS);
+                    if (unit == null) {
+                        continue; // Everything is handed out; stay around in case a unit has to be retried
+                    }
+                    ClusterProtocol.writeWork(out, unit);
+                    accept(unit, readResult(in, unit));
+                    unit = null;
+                }
+                ClusterProtocol.writeDone(out);
+            } catch (IOException e) {
+                logger.log(Level.INFO, "Worker " + socket.getRemoteSocketAddress() + " failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (unit != null) {
+                    requeue(unit);
+                }
+            }
+        }
+
+        private TrialCounts readResult(DataInputStream in, WorkUnit unit) throws IOException {
+            if (in.readByte() != ClusterProtocol.RESULT) {
+                throw new ProtocolException("Expected RESULT");
+            }
+            long id = in.readLong();
+            var counts = new TrialCounts(in.readLong(), in.readLong());
+            if (id != unit.id() || counts.trials() != unit.trials()) {
+                throw new ProtocolException(String.format("Result for unit %d does not match unit %d", id, unit.id()));
+            }
+            return counts;
+        }
+
+        private void accept(WorkUnit unit, TrialCounts counts) {
+            // A retried unit may be answered twice; only the first answer counts
+            if (results.putIfAbsent(unit.id(), counts) == null) {
+                onTrials.accept(counts.trials());
+                if (completedUnits.incrementAndGet() == unitCount) {
+                    completion.complete(results.values().stream().reduce(TrialCounts.EMPTY, TrialCounts::merge));
+                }
+            }
+        }
+
+        private void requeue(WorkUnit unit) {
+            if (results.containsKey(unit.id())) {
+                return;
+            }
+            var retry = unit.retry();
+            if (retry.attempt() >= MAX_ATTEMPTS) {
+                completion.completeExceptionally(new SocketException(String.format(
+                    "Unit %d [%d, %d) failed %d times", unit.id(), unit.fromTrial(), unit.toTrial(), MAX_ATTEMPTS)));
+            } else {
+                pending.addFirst(retry);
+            }
+        }
+    }
+}
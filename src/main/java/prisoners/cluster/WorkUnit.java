@@ -0,0 +1,19 @@
+package prisoners.cluster;
+
+import prisoners.SimulationConfig;
+
+/**
+ * A contiguous range of trials {@code [fromTrial, toTrial)} of one configuration, handed to a single worker.
+ *
+ * @param attempt how many times this unit has been handed out before (for retry limits)
+ */
+public record WorkUnit(long id, SimulationConfig config, long baseSeed, long fromTrial, long toTrial, int attempt) {
+
+    public long trials() {
+        return toTrial - fromTrial;
+    }
+
+    public WorkUnit retry() {
+        return new WorkUnit(id, config, baseSeed, fromTrial, toTrial, attempt + 1);
+    }
+}
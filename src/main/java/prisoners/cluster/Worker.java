@@ -0,0 +1,148 @@
+package prisoners.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import prisoners.SimulationRunner;
+import prisoners.TrialObserver;
+
+/**
+ * Worker process for distributed runs: connects to a {@link Coordinator}, simulates the trial ranges it is
+ * given with the regular {@link SimulationRunner} and reports the counts back.
+ *
+ * <p>
+ * Each worker thread holds its own connection. Lost connections are retried with a fixed delay, so workers
+ * may be started before the coordinator.
+ */
+@Command(
+    name = "worker",
+    mixinStandardHelpOptions = true,
+    description = "Runs trial ranges for a coordinator (mathward --coordinator PORT ...)."
+)
+public final class Worker implements Callable<Integer> {
+
+    private static final Logger logger = Logger.getLogger(Worker.class.getName());
+
+    @Option(
+        names = {"--connect"},
+        required = true,
+        description = "Coordinator address.",
+        paramLabel = "HOST:PORT"
+    )
+    private String address;
+
+    @Option(
+        names = {"--threads"},
+        description = "Concurrent connections, one trial range each (default: available processors).",
+        paramLabel = "COUNT"
+    )
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(
+        names = {"--retries"},
+        description = "Reconnection attempts before a worker thread gives up.",
+        defaultValue = "10",
+        paramLabel = "COUNT"
+    )
+    private int retries = 10;
+
+    @Option(
+        names = {"--retry-delay"},
+        description = "Delay between reconnection attempts in milliseconds.",
+        defaultValue = "1000",
+        paramLabel = "MS"
+    )
+    private long retryDelayMs = 1000;
+
+    public Worker() {
+    }
+
+    public Worker(String address, int threads, int retries, long retryDelayMs) {
+        this.address = address;
+        this.threads = threads;
+        this.retries = retries;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    @Override
+    public Integer call() throws InterruptedException {
+        var target = parseAddress(address);
+        var completed = new AtomicInteger();
+        var workers = new ArrayList<Thread>();
+        for (int i = 0; i < Math.max(1, threads); i++) {
+            workers.add(Thread.ofPlatform().name("worker-" + i).start(() -> {
+                if (work(target)) {
+                    completed.incrementAndGet();
+                }
+            }));
+        }
+        for (var thread : workers) {
+            thread.join();
+        }
+        logger.info(String.format("Worker finished: %d of %d connections completed", completed.get(), workers.size()));
+        return completed.get() > 0 ? 0 : 1;
+    }
+
+    /**
+     * Processes units until the coordinator says DONE. Returns false when retries are exhausted.
+     */
+    boolean work(InetSocketAddress target) {
+        var runner = new SimulationRunner();
+        int failures = 0;
+        while (true) {
+            try (var socket = new Socket()) {
+                socket.connect(target, 5_000);
+                socket.setTcpNoDelay(true);
+                var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                ClusterProtocol.writeHello(out);
+
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == ClusterProtocol.DONE) {
+                        return true;
+                    }
+                    if (type != ClusterProtocol.WORK) {
+                        throw new ProtocolException("Unexpected message type " + type);
+                    }
+                    var unit = ClusterProtocol.readWork(in);
+                    var counts = runner.runTrials(unit.config(), unit.baseSeed(), unit.fromTrial(), unit.toTrial(),
+                        TrialObserver.NONE);
+                    ClusterProtocol.writeResult(out, unit.id(), counts);
+                    failures = 0;
+                }
+            } catch (IOException e) {
+                if (++failures > retries) {
+                    logger.warning(String.format("Giving up on %s: %s", target, e.getMessage()));
+                    return false;
+                }
+            }
+            try {
+                Thread.sleep(retryDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0 || colon == address.length() - 1) {
+            throw new IllegalArgumentException(String.format("Expected HOST:PORT, got: %s", address));
+        }
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+}
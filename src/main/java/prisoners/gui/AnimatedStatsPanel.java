@@ -17,9 +17,13 @@ public final class AnimatedStatsPanel extends JPanel {
     private JLabel valueLabel;
     
     // Animation properties
-    private Timer pulseTimer;
+    private static final double PULSE_RADIANS_PER_SECOND = 4.0;
+    private static final long HIGHLIGHT_NANOS = 1_500_000_000L;
+    private final AnimationClock.Animation pulse = this::pulseFrame;
     private float pulsePhase = 0.0f;
     private boolean isHighlighted = false;
+    private long highlightStart;
+    private long lastFrame;
     
     public AnimatedStatsPanel(String title, String initialValue, Color accentColor) {
         this.title = title;
@@ -28,7 +32,6 @@ public final class AnimatedStatsPanel extends JPanel {
         
         setupPanel();
         createLabels();
-        setupAnimation();
     }
     
     private void setupPanel() {
@@ -53,19 +56,6 @@ public final class AnimatedStatsPanel extends JPanel {
         add(valueLabel, BorderLayout.CENTER);
     }
     
-    private void setupAnimation() {
-        pulseTimer = new Timer(50, e -> {
-            pulsePhase += 0.2f;
-            if (pulsePhase > Math.PI * 2) {
-                pulsePhase = 0.0f;
-                if (!isHighlighted) {
-                    pulseTimer.stop();
-                }
-            }
-            repaint();
-        });
-    }
-    
     public void updateValue(String newValue) {
         if (!currentValue.equals(newValue)) {
             currentValue = newValue;
@@ -79,15 +69,25 @@ public final class AnimatedStatsPanel extends JPanel {
     private void highlightUpdate() {
         isHighlighted = true;
         pulsePhase = 0.0f;
-        pulseTimer.start();
-        
-        // Stop highlighting after a few pulses
-        Timer stopTimer = new Timer(1500, e -> {
+        highlightStart = System.nanoTime();
+        lastFrame = highlightStart;
+        AnimationClock.shared().start(pulse);
+    }
+    
+    private boolean pulseFrame(long frameNanos) {
+        pulsePhase += (float) ((frameNanos - lastFrame) / 1e9 * PULSE_RADIANS_PER_SECOND);
+        lastFrame = frameNanos;
+        // Stop highlighting after a few pulses, at the end of the current one
+        if (frameNanos - highlightStart > HIGHLIGHT_NANOS) {
             isHighlighted = false;
-            ((Timer) e.getSource()).stop();
-        });
-        stopTimer.setRepeats(false);
-        stopTimer.start();
+        }
+        boolean running = true;
+        if (pulsePhase > Math.PI * 2) {
+            pulsePhase = 0.0f;
+            running = isHighlighted;
+        }
+        repaint();
+        return running;
     }
     
     @Override
@@ -107,7 +107,7 @@ public final class AnimatedStatsPanel extends JPanel {
         g2d.fillRoundRect(0, 0, width, height, 8, 8);
         
         // Paint pulse effect during updates
-        if (pulseTimer.isRunning()) {
+        if (AnimationClock.shared().isRunning(pulse)) {
             float alpha = (float) Math.abs(Math.sin(pulsePhase)) * 0.3f;
             g2d.setColor(new Color(accentColor.getRed(), accentColor.getGreen(), accentColor.getBlue(), (int)(alpha * 255)));
             g2d.fillRoundRect(0, 0, width, height, 8, 8);
@@ -0,0 +1,97 @@
+package prisoners.gui;
+
+import javax.swing.*;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * One frame clock for every animated component, instead of a Swing {@link Timer} per widget or per animation.
+ *
+ * <p>
+ * A single timer ticks at about 60 frames per second while at least one animation is running and stops when
+ * the last one finishes. All animations advance in the same event, so the repaints they request are coalesced
+ * by the {@link RepaintManager} into one paint pass per frame, however many boxes are animating. Animations
+ * should derive their progress from the frame time rather than count ticks, since a busy event dispatch thread
+ * may skip frames. Must be used from the event dispatch thread.
+ */
+public final class AnimationClock {
+
+    public static final int FRAME_MILLIS = 16;
+
+    /**
+     * Something that changes with every frame, e.g. a fade.
+     */
+    @FunctionalInterface
+    public interface Animation {
+
+        /**
+         * Advances to the given frame and requests the repaints it needs.
+         *
+         * @param frameNanos the frame time, from {@link System#nanoTime()}
+         * @return whether the animation continues; {@code false} unregisters it
+         */
+        boolean onFrame(long frameNanos);
+    }
+
+    private static final AnimationClock shared = new AnimationClock();
+
+    private final Set<Animation> animations = new LinkedHashSet<>();
+    private final Timer timer;
+    // Reused for every frame, so animations may start or stop others while they run
+    private Animation[] frame = new Animation[16];
+
+    AnimationClock() {
+        timer = new Timer(FRAME_MILLIS, e -> tick(System.nanoTime()));
+        timer.setCoalesce(true);
+    }
+
+    public static AnimationClock shared() {
+        return shared;
+    }
+
+    /**
+     * Runs {@code animation} from the next frame on; does nothing if it is already running.
+     */
+    public void start(Animation animation) {
+        animations.add(animation);
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    public void stop(Animation animation) {
+        animations.remove(animation);
+        if (animations.isEmpty()) {
+            timer.stop();
+        }
+    }
+
+    public boolean isRunning(Animation animation) {
+        return animations.contains(animation);
+    }
+
+    int runningAnimations() {
+        return animations.size();
+    }
+
+    /**
+     * Advances every running animation to one frame.
+     */
+    void tick(long frameNanos) {
+        int count = animations.size();
+        if (frame.length < count) {
+            frame = new Animation[Math.max(count, frame.length * 2)];
+        }
+        animations.toArray(frame);
+        for (int i = 0; i < count; i++) {
+            if (!frame[i].onFrame(frameNanos)) {
+                animations.remove(frame[i]);
+            }
+        }
+        Arrays.fill(frame, 0, count, null);
+        if (animations.isEmpty()) {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package prisoners.gui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * All the boxes in one component, drawn from primitive state arrays in a single {@link #paintComponent}, so the
+ * grid scales to thousands of boxes where one component per box does not.
+ *
+ * <p>
+ * Every change repaints only the cell of the box it affects, and painting only visits the cells inside the clip,
+ * so one opened box costs one cell however large the grid is. Hover and tooltips come from hit-testing the
+ * mouse position against the grid. Large cells are 3D boxes copied from pre-rendered {@link BoxSprites} and show
+ * both numbers; smaller cells drop the depth and then the numbers. Boxes are addressed by index, i.e. box
+ * number - 1. The background is a gradient from the background color down to a light gray.
+ */
+public final class BoxGridPanel extends JComponent {
+
+    // Visual state record for type safety and immutability
+    public record VisualState(
+        boolean isCurrentlyOpened,
+        boolean isInPath,
+        boolean isFoundTarget
+    ) {
+        public static final VisualState NORMAL = new VisualState(false, false, false);
+    }
+
+    /**
+     * Cell of a 70 pixel box and its gap.
+     */
+    static final int MAX_CELL = 78;
+    static final int MIN_CELL = 14;
+    /**
+     * Width the cell size is chosen for; larger grids scroll.
+     */
+    private static final int TARGET_WIDTH = 1000;
+    private static final int PADDING = 10;
+    private static final int DETAIL_SIZE = 40;
+    private static final int TEXT_SIZE = 20;
+
+    // Bits of flags[]
+    private static final byte OPENED = 1;
+    private static final byte IN_PATH = 2;
+    private static final byte FOUND = 4;
+    private static final byte LISTED = 8; // in path[]
+
+    private static final Color GRADIENT_BOTTOM = new Color(236, 240, 241);  // Light Silver
+
+    // Scale animations: a fade when a box is opened and a bounce when it holds the number
+    private static final byte FADE = 1;
+    private static final byte BOUNCE = 2;
+    private static final long FADE_NANOS = 500_000_000L;
+    private static final long BOUNCE_NANOS = 600_000_000L;
+
+    private int count;
+    private int columns;
+    private int rows;
+    private int cell = MAX_CELL;
+    private Font boxFont;
+    private Font hiddenFont;
+    private String[] labels = new String[0];
+
+    private byte[] flags = new byte[0];
+    private int[] hiddenNumbers = new int[0];
+    private int hovered = -1;
+    // Boxes opened since the last clearPath(), so clearing does not visit the whole grid
+    private int[] path = new int[0];
+    private int pathLength;
+
+    private float[] animationProgress = new float[0];
+    private long[] animationStart = new long[0];
+    private byte[] animationKind = new byte[0];
+    private int[] animating = new int[0];
+    private int animatingCount;
+    private final AnimationClock.Animation animation = this::animationFrame;
+
+    // Large boxes are copied from pre-rendered sprites of the current cell size and overlaid with their numbers
+    private final BoxSprites sprites = new BoxSprites(16);
+    private final Rectangle cellBounds = new Rectangle();
+
+    public BoxGridPanel(int boxCount) {
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setCursor(new Cursor(Cursor.HAND_CURSOR));
+        ToolTipManager.sharedInstance().registerComponent(this);
+        var mouse = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setHovered(boxAt(e.getX(), e.getY()));
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                setHovered(-1);
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        setBoxCount(boxCount);
+    }
+
+    /**
+     * Rebuilds the grid for another number of boxes, all closed.
+     */
+    public void setBoxCount(int boxCount) {
+        if (boxCount < 1) {
+            throw new IllegalArgumentException(String.format("At least one box is needed, got: %d", boxCount));
+        }
+        AnimationClock.shared().stop(animation);
+        count = boxCount;
+        columns = (int) Math.ceil(Math.sqrt(count));
+        rows = (count + columns - 1) / columns;
+        int previousCell = cell;
+        cell = Math.max(MIN_CELL, Math.min(MAX_CELL, TARGET_WIDTH / columns));
+        if (cell != previousCell) {
+            sprites.clear();
+        }
+        boxFont = new Font("SF Pro Display", Font.BOLD, Math.max(8, Math.min(11, boxSize() / 6)));
+        hiddenFont = new Font("SF Pro Display", Font.BOLD, Math.max(9, Math.min(14, boxSize() / 3)));
+        labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = String.valueOf(i + 1);
+        }
+        flags = new byte[count];
+        hiddenNumbers = new int[count];
+        path = new int[count];
+        pathLength = 0;
+        hovered = -1;
+        animationProgress = new float[count];
+        animationStart = new long[count];
+        animationKind = new byte[count];
+        animating = new int[count];
+        animatingCount = 0;
+        setPreferredSize(new Dimension(columns * cell + 2 * PADDING, rows * cell + 2 * PADDING));
+        revalidate();
+        repaint();
+    }
+
+    public int getBoxCount() {
+        return count;
+    }
+
+    public void setHiddenNumber(int index, int hiddenNumber) {
+        hiddenNumbers[index] = hiddenNumber;
+        repaintBox(index);
+    }
+
+    public int getHiddenNumber(int index) {
+        return hiddenNumbers[index] > 0 ? hiddenNumbers[index] : -1;
+    }
+
+    public void setCurrentlyOpened(int index, boolean currentlyOpened) {
+        setFlag(index, OPENED, currentlyOpened);
+        if (currentlyOpened) {
+            startAnimation(index, FADE);
+        }
+    }
+
+    public void setInPath(int index, boolean inPath) {
+        setFlag(index, IN_PATH, inPath);
+    }
+
+    public void setFoundTarget(int index, boolean foundTarget) {
+        setFlag(index, FOUND, foundTarget);
+        if (foundTarget) {
+            startAnimation(index, BOUNCE);
+        }
+    }
+
+    /**
+     * Closes the boxes the previous prisoner opened; found boxes stay found.
+     */
+    public void clearPath() {
+        for (int i = 0; i < pathLength; i++) {
+            int index = path[i];
+            flags[index] &= ~(OPENED | IN_PATH | LISTED);
+            repaintBox(index);
+        }
+        pathLength = 0;
+    }
+
+    /**
+     * Closes every box and forgets the hidden numbers.
+     */
+    public void reset() {
+        java.util.Arrays.fill(flags, (byte) 0);
+        java.util.Arrays.fill(hiddenNumbers, 0);
+        java.util.Arrays.fill(animationProgress, 0.0f);
+        java.util.Arrays.fill(animationKind, (byte) 0);
+        animatingCount = 0;
+        pathLength = 0;
+        AnimationClock.shared().stop(animation);
+        repaint();
+    }
+
+    public VisualState getState(int index) {
+        byte f = flags[index];
+        return new VisualState((f & OPENED) != 0, (f & IN_PATH) != 0, (f & FOUND) != 0);
+    }
+
+    /**
+     * Where the box is drawn, in this component's coordinates.
+     */
+    public Rectangle boxBounds(int index) {
+        var bounds = cellBounds(index, new Rectangle());
+        int gap = cell - boxSize();
+        bounds.translate(gap / 2, gap / 2);
+        bounds.setSize(boxSize(), boxSize());
+        return bounds;
+    }
+
+    /**
+     * The box under a point of this component, or -1.
+     */
+    public int boxAt(int x, int y) {
+        int column = Math.floorDiv(x - originX(), cell);
+        int row = Math.floorDiv(y - originY(), cell);
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return -1;
+        }
+        int index = row * columns + column;
+        return index < count ? index : -1;
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        int index = boxAt(event.getX(), event.getY());
+        if (index < 0) {
+            return null;
+        }
+        return hiddenNumbers[index] > 0
+            ? String.format("<html><b>Box %d</b><br/>Contains: <span style='color: #e74c3c;'>%d</span></html>",
+                index + 1, hiddenNumbers[index])
+            : String.format("<html><b>Box %d</b><br/>Hidden number unknown</html>", index + 1);
+    }
+
+    private int boxSize() {
+        return cell - Math.max(1, cell / 10);
+    }
+
+    private int originX() {
+        return Math.max(PADDING, (getWidth() - columns * cell) / 2);
+    }
+
+    private int originY() {
+        return PADDING;
+    }
+
+    private Rectangle cellBounds(int index, Rectangle bounds) {
+        bounds.setBounds(originX() + (index % columns) * cell, originY() + (index / columns) * cell, cell, cell);
+        return bounds;
+    }
+
+    /**
+     * How far a box may be drawn beyond its cell: a bouncing box grows by a tenth, and large boxes have a
+     * shadow and a glow.
+     */
+    private int bleed() {
+        int size = boxSize();
+        return size / 20 + 1 + (size >= DETAIL_SIZE ? BoxSprites.MARGIN : 0);
+    }
+
+    private void repaintBox(int index) {
+        cellBounds(index, cellBounds);
+        int bleed = bleed();
+        cellBounds.grow(bleed, bleed);
+        repaint(cellBounds);
+    }
+
+    private void setFlag(int index, byte flag, boolean on) {
+        flags[index] = (byte) (on ? flags[index] | flag : flags[index] & ~flag);
+        if (on && (flag == OPENED || flag == IN_PATH) && (flags[index] & LISTED) == 0) {
+            flags[index] |= LISTED;
+            path[pathLength++] = index;
+        }
+        if (flag == OPENED && on && hovered == index) {
+            hovered = -1;
+        }
+        repaintBox(index);
+    }
+
+    private void setHovered(int index) {
+        if (index >= 0 && (flags[index] & OPENED) != 0) {
+            index = -1;
+        }
+        if (index != hovered) {
+            if (hovered >= 0) {
+                repaintBox(hovered);
+            }
+            hovered = index;
+            if (hovered >= 0) {
+                repaintBox(hovered);
+            }
+        }
+    }
+
+    private void startAnimation(int index, byte kind) {
+        if (animationKind[index] == 0) {
+            animating[animatingCount++] = index;
+        }
+        animationKind[index] = kind;
+        animationStart[index] = System.nanoTime();
+        animationProgress[index] = kind == FADE ? 1.0f : 0.7f;
+        AnimationClock.shared().start(animation);
+    }
+
+    private boolean animationFrame(long frameNanos) {
+        for (int i = animatingCount - 1; i >= 0; i--) {
+            int index = animating[i];
+            double elapsed = Math.max(0, frameNanos - animationStart[index]);
+            boolean done;
+            if (animationKind[index] == FADE) {
+                animationProgress[index] = Math.max(0.0f, 1.0f - (float) (elapsed / FADE_NANOS));
+                done = animationProgress[index] <= 0.0f;
+            } else {
+                double progress = elapsed / BOUNCE_NANOS;
+                done = progress >= 1.0;
+                animationProgress[index] = done ? 1.0f : (float) (Math.sin(progress * Math.PI * 2) * 0.3 + 0.7);
+            }
+            repaintBox(index);
+            if (done) {
+                animationKind[index] = 0;
+                animating[i] = animating[--animatingCount];
+            }
+        }
+        return animatingCount > 0;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        var clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        // The gradient spans the whole component, so a repainted cell matches its surroundings
+        var g2d = (Graphics2D) g;
+        g2d.setPaint(new GradientPaint(0, 0, getBackground(), 0, getHeight(), GRADIENT_BOTTOM));
+        g2d.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        boolean detailed = boxSize() >= DETAIL_SIZE;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+            detailed ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        // Only the cells inside the clip, and their neighbours whose boxes reach into it
+        int originX = originX();
+        int originY = originY();
+        int bleed = bleed();
+        int firstColumn = Math.max(0, Math.floorDiv(clip.x - bleed - originX, cell));
+        int lastColumn = Math.min(columns - 1, Math.floorDiv(clip.x + clip.width + bleed - originX, cell));
+        int firstRow = Math.max(0, Math.floorDiv(clip.y - bleed - originY, cell));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(clip.y + clip.height + bleed - originY, cell));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int index = row * columns + column;
+                if (index < count) {
+                    paintBox(g2d, index, originX + column * cell, originY + row * cell, detailed);
+                }
+            }
+        }
+    }
+
+    private int visualState(int index) {
+        byte f = flags[index];
+        if ((f & FOUND) != 0) return BoxSprites.SUCCESS;
+        if ((f & OPENED) != 0) return BoxSprites.CURRENT;
+        if ((f & IN_PATH) != 0) return BoxSprites.PATH;
+        if (index == hovered) return BoxSprites.HOVER;
+        return BoxSprites.NORMAL;
+    }
+
+    private void paintBox(Graphics2D g2d, int index, int cellX, int cellY, boolean detailed) {
+        int look = visualState(index);
+        boolean light = look == BoxSprites.SUCCESS || look == BoxSprites.CURRENT;
+        int size = boxSize();
+        int scaled = (int) (size * (1.0f + animationProgress[index] * 0.1f));
+        int x = cellX + (cell - scaled) / 2;
+        int y = cellY + (cell - scaled) / 2;
+
+        if (!detailed) {
+            g2d.setColor(BoxSprites.FRONT[look]);
+            g2d.fillRect(x, y, scaled, scaled);
+            g2d.setColor(look == BoxSprites.CURRENT ? BoxSprites.CURRENT_BORDER : BoxSprites.BORDER_COLOR);
+            g2d.drawRect(x, y, scaled - 1, scaled - 1);
+            if (size >= TEXT_SIZE) {
+                // Room for one number: the hidden one once known
+                boolean revealed = hiddenNumbers[index] > 0;
+                g2d.setFont(hiddenFont);
+                g2d.setColor(light ? Color.WHITE : revealed ? BoxSprites.ACCENT_COLOR : BoxSprites.TEXT_COLOR);
+                drawCentered(g2d, revealed ? labels[hiddenNumbers[index] - 1] : labels[index], x + scaled / 2,
+                    y + scaled / 2);
+            }
+            return;
+        }
+
+        sprites.draw(g2d, look, (flags[index] & OPENED) != 0, x, y, scaled, scaled);
+
+        // Box number at the top of the front face, hidden number at the bottom
+        int depth = scaled / 5;
+        int faceWidth = scaled - depth;
+        g2d.setFont(boxFont);
+        g2d.setColor(light ? Color.WHITE : BoxSprites.TEXT_COLOR);
+        var metrics = g2d.getFontMetrics();
+        g2d.drawString(labels[index], x + (faceWidth - metrics.stringWidth(labels[index])) / 2,
+            y + depth + metrics.getAscent() + 2);
+        if (hiddenNumbers[index] > 0) {
+            var hidden = labels[hiddenNumbers[index] - 1];
+            g2d.setFont(hiddenFont);
+            g2d.setColor(look == BoxSprites.SUCCESS ? Color.WHITE : BoxSprites.ACCENT_COLOR);
+            metrics = g2d.getFontMetrics();
+            g2d.drawString(hidden, x + (faceWidth - metrics.stringWidth(hidden)) / 2, y + scaled - 4);
+        }
+    }
+
+    private static void drawCentered(Graphics2D g2d, String text, int centerX, int centerY) {
+        var metrics = g2d.getFontMetrics();
+        g2d.drawString(text, centerX - metrics.stringWidth(text) / 2,
+            centerY + (metrics.getAscent() - metrics.getDescent()) / 2);
+    }
+}
@@ -0,0 +1,260 @@
+package prisoners.gui;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-rendered boxes: the shadow, 3D faces, border and state indicators of a box, drawn once per look, size and
+ * display scale and then copied for every box that looks the same. Only the numbers are drawn per box.
+ *
+ * <p>
+ * A box has one of five looks ({@link #NORMAL} to {@link #SUCCESS}), and an opened box gets a stronger border
+ * and a glow. Sprites are kept per size in a few sheets, most recently used first; a sheet for a size no box
+ * uses any more is dropped when another size needs the room, so resizing the boxes invalidates the old sprites.
+ * Sprites are rendered at the device scale of the target graphics, so they stay sharp on HiDPI screens. Must be
+ * used from the event dispatch thread.
+ */
+final class BoxSprites {
+
+    static final int NORMAL = 0;
+    static final int HOVER = 1;
+    static final int CURRENT = 2;
+    static final int PATH = 3;
+    static final int SUCCESS = 4;
+    private static final int LOOKS = 5;
+
+    /**
+     * How far the shadow and the glow reach beyond the box.
+     */
+    static final int MARGIN = 4;
+
+    // Modern color palette with better contrast and accessibility, shared with BoxGridPanel
+    static final Color NORMAL_COLOR = new Color(255, 255, 255);        // Pure White
+    static final Color HOVER_COLOR = new Color(245, 247, 249);         // Light Gray
+    static final Color CURRENT_COLOR = new Color(52, 152, 219);        // Vibrant Blue
+    static final Color PATH_COLOR = new Color(174, 213, 255);          // Light Blue
+    static final Color SUCCESS_COLOR = new Color(46, 204, 113);        // Emerald Green
+    static final Color BORDER_COLOR = new Color(220, 221, 225);        // Soft Gray
+    static final Color TEXT_COLOR = new Color(44, 62, 80);             // Dark Slate
+    static final Color ACCENT_COLOR = new Color(142, 68, 173);         // Purple Accent
+
+    /**
+     * Front face colors, by look.
+     */
+    static final Color[] FRONT = {NORMAL_COLOR, HOVER_COLOR, CURRENT_COLOR, PATH_COLOR, SUCCESS_COLOR};
+    private static final Color[] FRONT_DARK = new Color[LOOKS];
+    private static final Color[] TOP = new Color[LOOKS];
+    private static final Color[] RIGHT = new Color[LOOKS];
+    private static final Color[] RIGHT_LIGHT = new Color[LOOKS];
+    static {
+        for (int look = 0; look < LOOKS; look++) {
+            FRONT_DARK[look] = darker(FRONT[look], 0.85f);
+            TOP[look] = brighter(FRONT[look], 1.2f);
+            RIGHT[look] = darker(FRONT[look], 0.7f);
+            RIGHT_LIGHT[look] = darker(FRONT[look], 0.8f);
+        }
+    }
+    private static final Color SHADOW_NORMAL = new Color(0, 0, 0, 20);
+    private static final Color SHADOW_HOVER = new Color(0, 0, 0, 40);
+    static final Color CURRENT_BORDER = CURRENT_COLOR.darker();
+    private static final Color CURRENT_GLOW = new Color(CURRENT_COLOR.getRed(), CURRENT_COLOR.getGreen(),
+        CURRENT_COLOR.getBlue(), 100);
+    private static final Color CHECK_COLOR = new Color(255, 255, 255, 200);
+    private static final Color GLOW_COLOR = new Color(255, 255, 255, 50);
+    private static final BasicStroke STROKE_1 = new BasicStroke(1);
+    private static final BasicStroke STROKE_2 = new BasicStroke(2);
+    private static final BasicStroke STROKE_3 = new BasicStroke(3);
+    private static final BasicStroke STROKE_CHECK = new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private static final BasicStroke STROKE_GLOW = new BasicStroke(6, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+
+    /**
+     * The sprites of one size and scale, rendered on first use; the opened variant of each look follows the
+     * five looks.
+     */
+    private static final class Sheet {
+        int width;
+        int height;
+        double scaleX;
+        double scaleY;
+        final Image[] sprites = new Image[LOOKS * 2];
+    }
+
+    private final Sheet[] sheets;
+    private int sheetCount;
+
+    /**
+     * @param sizes how many box sizes to keep sprites for, e.g. all the sizes a box passes through while it
+     * bounces
+     */
+    BoxSprites(int sizes) {
+        sheets = new Sheet[sizes];
+    }
+
+    /**
+     * Draws a box without its numbers, so that the box itself covers {@code x, y, width, height}; the shadow
+     * and the glow reach up to {@link #MARGIN} beyond it.
+     */
+    void draw(Graphics2D g, int look, boolean opened, int x, int y, int width, int height) {
+        var transform = g.getTransform();
+        var sheet = sheet(width, height, transform.getScaleX(), transform.getScaleY());
+        int variant = opened ? LOOKS + look : look;
+        var sprite = sheet.sprites[variant];
+        if (sprite == null) {
+            sprite = render(g.getDeviceConfiguration(), sheet, look, opened);
+            sheet.sprites[variant] = sprite;
+        }
+        g.drawImage(sprite, x - MARGIN, y - MARGIN, width + 2 * MARGIN, height + 2 * MARGIN, null);
+    }
+
+    /**
+     * Drops every sprite, e.g. when all boxes change size.
+     */
+    void clear() {
+        java.util.Arrays.fill(sheets, null);
+        sheetCount = 0;
+    }
+
+    int sheetCount() {
+        return sheetCount;
+    }
+
+    /**
+     * The sheet for a size and scale, moved to the front; creates it, in place of the least recently used one
+     * if all are taken.
+     */
+    private Sheet sheet(int width, int height, double scaleX, double scaleY) {
+        int found = 0;
+        while (found < sheetCount) {
+            var sheet = sheets[found];
+            if (sheet.width == width && sheet.height == height && sheet.scaleX == scaleX && sheet.scaleY == scaleY) {
+                break;
+            }
+            found++;
+        }
+        Sheet sheet;
+        if (found < sheetCount) {
+            sheet = sheets[found];
+        } else {
+            sheet = new Sheet();
+            sheet.width = width;
+            sheet.height = height;
+            sheet.scaleX = scaleX;
+            sheet.scaleY = scaleY;
+            if (sheetCount < sheets.length) {
+                found = sheetCount++;
+            } else {
+                found = sheets.length - 1;
+            }
+        }
+        System.arraycopy(sheets, 0, sheets, 1, found);
+        sheets[0] = sheet;
+        return sheet;
+    }
+
+    private static Image render(GraphicsConfiguration configuration, Sheet sheet, int look, boolean opened) {
+        int logicalWidth = sheet.width + 2 * MARGIN;
+        int logicalHeight = sheet.height + 2 * MARGIN;
+        int pixelWidth = Math.max(1, (int) Math.ceil(logicalWidth * sheet.scaleX));
+        int pixelHeight = Math.max(1, (int) Math.ceil(logicalHeight * sheet.scaleY));
+        // A compatible image is kept in video memory by Java2D and copied with the GPU when it can be
+        var sprite = configuration != null
+            ? configuration.createCompatibleImage(pixelWidth, pixelHeight, Transparency.TRANSLUCENT)
+            : new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        var g2d = sprite.createGraphics();
+        try {
+            g2d.scale(sheet.scaleX, sheet.scaleY);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            paint(g2d, look, opened, MARGIN, MARGIN, sheet.width, sheet.height);
+        } finally {
+            g2d.dispose();
+        }
+        return sprite;
+    }
+
+    private static void paint(Graphics2D g2d, int look, boolean opened, int x, int y, int width, int height) {
+        int depth = Math.min(width, height) / 5;
+        int[] polyX = new int[6];
+        int[] polyY = new int[6];
+
+        // Shadow
+        g2d.setColor(look == HOVER ? SHADOW_HOVER : SHADOW_NORMAL);
+        polyX[0] = x + depth + 4; polyX[1] = x + width + 4; polyX[2] = x + width + 4;
+        polyX[3] = x + width - depth + 4; polyX[4] = x + 4; polyX[5] = x + 4;
+        polyY[0] = y + 4; polyY[1] = y + 4; polyY[2] = y + height - depth + 4;
+        polyY[3] = y + height + 4; polyY[4] = y + height + 4; polyY[5] = y + depth + 4;
+        g2d.fillPolygon(polyX, polyY, 6);
+
+        // Front face
+        g2d.setPaint(new GradientPaint(x, y + depth, FRONT[look], x, y + height, FRONT_DARK[look]));
+        g2d.fillRect(x, y + depth, width - depth, height - depth);
+
+        // Top face
+        polyX[0] = x; polyX[1] = x + depth; polyX[2] = x + width; polyX[3] = x + width - depth;
+        polyY[0] = y + depth; polyY[1] = y; polyY[2] = y; polyY[3] = y + depth;
+        g2d.setPaint(new GradientPaint(x, y, TOP[look], x, y + depth, FRONT[look]));
+        g2d.fillPolygon(polyX, polyY, 4);
+
+        // Right face
+        polyX[0] = x + width - depth; polyX[1] = x + width; polyX[2] = x + width; polyX[3] = x + width - depth;
+        polyY[0] = y + depth; polyY[1] = y; polyY[2] = y + height - depth; polyY[3] = y + height;
+        g2d.setPaint(new GradientPaint(x + width - depth, y + depth, RIGHT_LIGHT[look], x + width, y, RIGHT[look]));
+        g2d.fillPolygon(polyX, polyY, 4);
+
+        // Outlines of the three faces
+        g2d.setColor(opened ? CURRENT_BORDER : BORDER_COLOR);
+        g2d.setStroke(opened ? STROKE_2 : STROKE_1);
+        g2d.drawRect(x, y + depth, width - depth - 1, height - depth - 1);
+        polyX[0] = x; polyX[1] = x + depth; polyX[2] = x + width - 1; polyX[3] = x + width - depth - 1;
+        polyY[0] = y + depth; polyY[1] = y; polyY[2] = y; polyY[3] = y + depth;
+        g2d.drawPolygon(polyX, polyY, 4);
+        polyX[0] = x + width - depth - 1; polyX[1] = x + width - 1; polyX[2] = x + width - 1;
+        polyX[3] = x + width - depth - 1;
+        polyY[0] = y + depth; polyY[1] = y; polyY[2] = y + height - depth - 1; polyY[3] = y + height - 1;
+        g2d.drawPolygon(polyX, polyY, 4);
+
+        if (opened) {
+            g2d.setColor(CURRENT_GLOW);
+            g2d.setStroke(STROKE_3);
+            g2d.drawRect(x - 2, y + depth - 2, width - depth + 3, height - depth + 3);
+        }
+
+        if (look == SUCCESS) {
+            paintCheck(g2d, x, y + depth, width - depth, height - depth);
+        }
+    }
+
+    private static Color darker(Color c, float factor) {
+        return new Color(
+            Math.max(0, (int)(c.getRed() * factor)),
+            Math.max(0, (int)(c.getGreen() * factor)),
+            Math.max(0, (int)(c.getBlue() * factor)),
+            c.getAlpha()
+        );
+    }
+
+    private static Color brighter(Color c, float factor) {
+        return new Color(
+            Math.min(255, (int)(c.getRed() * factor)),
+            Math.min(255, (int)(c.getGreen() * factor)),
+            Math.min(255, (int)(c.getBlue() * factor)),
+            c.getAlpha()
+        );
+    }
+
+    private static void paintCheck(Graphics2D g2d, int x, int y, int width, int height) {
+        int checkSize = Math.min(width, height) / 4;
+        int centerX = x + width / 2;
+        int centerY = y + height / 2;
+
+        g2d.setColor(CHECK_COLOR);
+        g2d.setStroke(STROKE_CHECK);
+        g2d.drawLine(centerX - checkSize / 2, centerY, centerX - checkSize / 4, centerY + checkSize / 2);
+        g2d.drawLine(centerX - checkSize / 4, centerY + checkSize / 2, centerX + checkSize / 2, centerY - checkSize / 2);
+
+        g2d.setColor(GLOW_COLOR);
+        g2d.setStroke(STROKE_GLOW);
+        g2d.drawLine(centerX - checkSize / 2, centerY, centerX - checkSize / 4, centerY + checkSize / 2);
+        g2d.drawLine(centerX - checkSize / 4, centerY + checkSize / 2, centerX + checkSize / 2, centerY - checkSize / 2);
+    }
+}
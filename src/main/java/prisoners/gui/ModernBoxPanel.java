@@ -1,488 +0,0 @@
-package prisoners.gui;
-
-import javax.swing.*;
-import javax.swing.border.EmptyBorder;
-import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
-
-/**
- * Modern, visually appealing box component with smooth animations and hover effects.
- */
-public final class ModernBoxPanel extends JPanel {
-    
-    // Visual state record for type safety and immutability
-    public record VisualState(
-        boolean isCurrentlyOpened,
-        boolean isInPath,
-        boolean isFoundTarget
-    ) {
-        public static final VisualState NORMAL = new VisualState(false, false, false);
-    }
-    
-    // Box properties
-    private final int boxNumber;
-    private int hiddenNumber = -1;
-    private VisualState state = VisualState.NORMAL;
-    private boolean isHovered = false;
-    private float animationProgress = 0.0f;
-    
-    // Modern color palette with better contrast and accessibility
-    private static final Color NORMAL_COLOR = new Color(255, 255, 255);        // Pure White
-    private static final Color HOVER_COLOR = new Color(245, 247, 249);         // Light Gray
-    private static final Color CURRENT_COLOR = new Color(52, 152, 219);        // Vibrant Blue
-    private static final Color PATH_COLOR = new Color(174, 213, 255);          // Light Blue
-    private static final Color SUCCESS_COLOR = new Color(46, 204, 113);        // Emerald Green
-    private static final Color BORDER_COLOR = new Color(220, 221, 225);        // Soft Gray
-    private static final Color TEXT_COLOR = new Color(44, 62, 80);             // Dark Slate
-    private static final Color ACCENT_COLOR = new Color(142, 68, 173);         // Purple Accent
-    
-    // Pre-cached shadow colors to avoid allocation during paint
-    private static final Color SHADOW_NORMAL = new Color(0, 0, 0, 20);
-    private static final Color SHADOW_HOVER = new Color(0, 0, 0, 40);
-    
-    // Pre-cached derived colors for each background state
-    private static final Color NORMAL_FRONT_DARK = darker(NORMAL_COLOR, 0.85f);
-    private static final Color NORMAL_TOP = brighter(NORMAL_COLOR, 1.2f);
-    private static final Color NORMAL_RIGHT = darker(NORMAL_COLOR, 0.7f);
-    private static final Color NORMAL_RIGHT_LIGHT = darker(NORMAL_COLOR, 0.8f);
-    
-    private static final Color HOVER_FRONT_DARK = darker(HOVER_COLOR, 0.85f);
-    private static final Color HOVER_TOP = brighter(HOVER_COLOR, 1.2f);
-    private static final Color HOVER_RIGHT = darker(HOVER_COLOR, 0.7f);
-    private static final Color HOVER_RIGHT_LIGHT = darker(HOVER_COLOR, 0.8f);
-    
-    private static final Color CURRENT_FRONT_DARK = darker(CURRENT_COLOR, 0.85f);
-    private static final Color CURRENT_TOP = brighter(CURRENT_COLOR, 1.2f);
-    private static final Color CURRENT_RIGHT = darker(CURRENT_COLOR, 0.7f);
-    private static final Color CURRENT_RIGHT_LIGHT = darker(CURRENT_COLOR, 0.8f);
-    private static final Color CURRENT_BORDER = CURRENT_COLOR.darker();
-    private static final Color CURRENT_GLOW = new Color(CURRENT_COLOR.getRed(), CURRENT_COLOR.getGreen(), CURRENT_COLOR.getBlue(), 100);
-    
-    private static final Color PATH_FRONT_DARK = darker(PATH_COLOR, 0.85f);
-    private static final Color PATH_TOP = brighter(PATH_COLOR, 1.2f);
-    private static final Color PATH_RIGHT = darker(PATH_COLOR, 0.7f);
-    private static final Color PATH_RIGHT_LIGHT = darker(PATH_COLOR, 0.8f);
-    
-    private static final Color SUCCESS_FRONT_DARK = darker(SUCCESS_COLOR, 0.85f);
-    private static final Color SUCCESS_TOP = brighter(SUCCESS_COLOR, 1.2f);
-    private static final Color SUCCESS_RIGHT = darker(SUCCESS_COLOR, 0.7f);
-    private static final Color SUCCESS_RIGHT_LIGHT = darker(SUCCESS_COLOR, 0.8f);
-    
-    // Pre-cached strokes
-    private static final BasicStroke STROKE_1 = new BasicStroke(1);
-    private static final BasicStroke STROKE_2 = new BasicStroke(2);
-    private static final BasicStroke STROKE_3 = new BasicStroke(3);
-    private static final BasicStroke STROKE_CHECK = new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
-    private static final BasicStroke STROKE_GLOW = new BasicStroke(6, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
-    private static final Color CHECK_COLOR = new Color(255, 255, 255, 200);
-    private static final Color GLOW_COLOR = new Color(255, 255, 255, 50);
-    
-    // Modern typography
-    private static final Font BOX_FONT = new Font("SF Pro Display", Font.BOLD, 11);
-    private static final Font HIDDEN_FONT = new Font("SF Pro Display", Font.BOLD, 14);
-    
-    // Reusable polygon arrays (avoid allocation per frame)
-    private final int[] polyX = new int[4];
-    private final int[] polyY = new int[4];
-    private final int[] shadowPolyX = new int[6];
-    private final int[] shadowPolyY = new int[6];
-    
-    public ModernBoxPanel(int boxNumber) {
-        this.boxNumber = boxNumber;
-        setupComponent();
-        setupMouseInteractions();
-        updateToolTip();
-    }
-    
-    private void setupComponent() {
-        setPreferredSize(new Dimension(70, 70));
-        setMinimumSize(new Dimension(60, 60));
-        setOpaque(false); // For custom painting
-        setCursor(new Cursor(Cursor.HAND_CURSOR));
-        
-        // Add subtle border with rounded corners effect
-        setBorder(new EmptyBorder(2, 2, 2, 2));
-    }
-    
-    private void setupMouseInteractions() {
-        addMouseListener(new MouseAdapter() {
-            @Override
-            public void mouseEntered(MouseEvent e) {
-                if (!state.isCurrentlyOpened()) {
-                    isHovered = true;
-                    repaint();
-                }
-            }
-            
-            @Override
-            public void mouseExited(MouseEvent e) {
-                isHovered = false;
-                repaint();
-            }
-        });
-    }
-    
-    public void setHiddenNumber(int hiddenNumber) {
-        this.hiddenNumber = hiddenNumber;
-        updateToolTip();
-        repaint();
-    }
-    
-    public void setCurrentlyOpened(boolean currentlyOpened) {
-        state = new VisualState(currentlyOpened, state.isInPath(), state.isFoundTarget());
-        isHovered = false; // Reset hover state when opened
-        animateStateChange();
-        updateAppearance();
-    }
-    
-    public void setInPath(boolean inPath) {
-        state = new VisualState(state.isCurrentlyOpened(), inPath, state.isFoundTarget());
-        updateAppearance();
-    }
-    
-    public void setFoundTarget(boolean foundTarget) {
-        state = new VisualState(state.isCurrentlyOpened(), state.isInPath(), foundTarget);
-        if (foundTarget) {
-            animateSuccess();
-        }
-        updateAppearance();
-    }
-    
-    public void clearPath() {
-        state = new VisualState(false, false, state.isFoundTarget());
-        isHovered = false;
-        updateAppearance();
-    }
-    
-    public void reset() {
-        state = VisualState.NORMAL;
-        hiddenNumber = -1;
-        isHovered = false;
-        animationProgress = 0.0f;
-        updateAppearance();
-        updateToolTip();
-    }
-    
-    private void updateAppearance() {
-        repaint();
-    }
-    
-    private void updateToolTip() {
-        var tooltipText = hiddenNumber > 0 ? 
-            String.format("<html><b>Box %d</b><br/>Contains: <span style='color: #e74c3c;'>%d</span></html>", boxNumber, hiddenNumber) :
-            String.format("<html><b>Box %d</b><br/>Hidden number unknown</html>", boxNumber);
-        setToolTipText(tooltipText);
-    }
-    
-    private void animateStateChange() {
-        // Simple animation trigger - in a real app you'd use a Timer
-        animationProgress = 1.0f;
-        Timer fadeTimer = new Timer(50, e -> {
-            animationProgress = Math.max(0.0f, animationProgress - 0.1f);
-            repaint();
-            if (animationProgress <= 0.0f) {
-                ((Timer) e.getSource()).stop();
-            }
-        });
-        fadeTimer.start();
-    }
-    
-    private void animateSuccess() {
-        // Success animation with bounce effect
-        Timer bounceTimer = new Timer(30, null);
-        final int[] step = {0};
-        final int maxSteps = 20;
-        
-        bounceTimer.addActionListener(e -> {
-            step[0]++;
-            double progress = (double) step[0] / maxSteps;
-            animationProgress = (float) (Math.sin(progress * Math.PI * 2) * 0.3 + 0.7);
-            repaint();
-            
-            if (step[0] >= maxSteps) {
-                animationProgress = 1.0f;
-                bounceTimer.stop();
-            }
-        });
-        bounceTimer.start();
-    }
-    
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        
-        Graphics2D g2d = (Graphics2D) g.create();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        
-        int width = getWidth();
-        int height = getHeight();
-        
-        // Calculate animation scaling
-        float scale = 1.0f + (animationProgress * 0.1f);
-        int scaledWidth = (int) (width * scale);
-        int scaledHeight = (int) (height * scale);
-        int offsetX = (width - scaledWidth) / 2;
-        int offsetY = (height - scaledHeight) / 2;
-        
-        // Paint shadow first
-        paintShadow(g2d, offsetX, offsetY, scaledWidth, scaledHeight);
-        
-        // Paint box background
-        paintBackground(g2d, offsetX, offsetY, scaledWidth, scaledHeight);
-        
-        // Paint border
-        paintBorder(g2d, offsetX, offsetY, scaledWidth, scaledHeight);
-        
-        // Paint content
-        paintContent(g2d, width, height);
-        
-        // Paint state indicators
-        paintStateIndicators(g2d, offsetX, offsetY, scaledWidth, scaledHeight);
-        
-        g2d.dispose();
-    }
-    
-    private void paintShadow(Graphics2D g2d, int x, int y, int width, int height) {
-        int depth = Math.min(width, height) / 5;
-        g2d.setColor(isHovered ? SHADOW_HOVER : SHADOW_NORMAL);
-        shadowPolyX[0] = x + depth + 4; shadowPolyX[1] = x + width + 4; shadowPolyX[2] = x + width + 4;
-        shadowPolyX[3] = x + width - depth + 4; shadowPolyX[4] = x + 4; shadowPolyX[5] = x + 4;
-        shadowPolyY[0] = y + 4; shadowPolyY[1] = y + 4; shadowPolyY[2] = y + height - depth + 4;
-        shadowPolyY[3] = y + height + 4; shadowPolyY[4] = y + height + 4; shadowPolyY[5] = y + depth + 4;
-        g2d.fillPolygon(shadowPolyX, shadowPolyY, 6);
-    }
-    
-    private void paintBackground(Graphics2D g2d, int x, int y, int width, int height) {
-        Color backgroundColor = getBackgroundColor();
-        int depth = Math.min(width, height) / 5;
-        
-        // Get pre-cached derived colors
-        Color frontDark = getFrontDark();
-        Color topColor = getTopColor();
-        Color rightColor = getRightColor();
-        Color rightLight = getRightLight();
-        
-        // Front face
-        GradientPaint frontGradient = new GradientPaint(
-            x, y + depth, backgroundColor,
-            x, y + height, frontDark
-        );
-        g2d.setPaint(frontGradient);
-        g2d.fillRect(x, y + depth, width - depth, height - depth);
-        
-        // Top face
-        polyX[0] = x; polyX[1] = x + depth; polyX[2] = x + width; polyX[3] = x + width - depth;
-        polyY[0] = y + depth; polyY[1] = y; polyY[2] = y; polyY[3] = y + depth;
-        GradientPaint topGradient = new GradientPaint(
-            x, y, topColor,
-            x, y + depth, backgroundColor
-        );
-        g2d.setPaint(topGradient);
-        g2d.fillPolygon(polyX, polyY, 4);
-        
-        // Right face
-        polyX[0] = x + width - depth; polyX[1] = x + width; polyX[2] = x + width; polyX[3] = x + width - depth;
-        polyY[0] = y + depth; polyY[1] = y; polyY[2] = y + height - depth; polyY[3] = y + height;
-        GradientPaint rightGradient = new GradientPaint(
-            x + width - depth, y + depth, rightLight,
-            x + width, y, rightColor
-        );
-        g2d.setPaint(rightGradient);
-        g2d.fillPolygon(polyX, polyY, 4);
-    }
-    
-    private Color getFrontDark() {
-        if (state.isFoundTarget()) return SUCCESS_FRONT_DARK;
-        if (state.isCurrentlyOpened()) return CURRENT_FRONT_DARK;
-        if (state.isInPath()) return PATH_FRONT_DARK;
-        if (isHovered) return HOVER_FRONT_DARK;
-        return NORMAL_FRONT_DARK;
-    }
-    
-    private Color getTopColor() {
-        if (state.isFoundTarget()) return SUCCESS_TOP;
-        if (state.isCurrentlyOpened()) return CURRENT_TOP;
-        if (state.isInPath()) return PATH_TOP;
-        if (isHovered) return HOVER_TOP;
-        return NORMAL_TOP;
-    }
-    
-    private Color getRightColor() {
-        if (state.isFoundTarget()) return SUCCESS_RIGHT;
-        if (state.isCurrentlyOpened()) return CURRENT_RIGHT;
-        if (state.isInPath()) return PATH_RIGHT;
-        if (isHovered) return HOVER_RIGHT;
-        return NORMAL_RIGHT;
-    }
-    
-    private Color getRightLight() {
-        if (state.isFoundTarget()) return SUCCESS_RIGHT_LIGHT;
-        if (state.isCurrentlyOpened()) return CURRENT_RIGHT_LIGHT;
-        if (state.isInPath()) return PATH_RIGHT_LIGHT;
-        if (isHovered) return HOVER_RIGHT_LIGHT;
-        return NORMAL_RIGHT_LIGHT;
-    }
-    
-    private static Color darker(Color c, float factor) {
-        return new Color(
-            Math.max(0, (int)(c.getRed() * factor)),
-            Math.max(0, (int)(c.getGreen() * factor)),
-            Math.max(0, (int)(c.getBlue() * factor)),
-            c.getAlpha()
-        );
-    }
-    
-    private static Color brighter(Color c, float factor) {
-        return new Color(
-            Math.min(255, (int)(c.getRed() * factor)),
-            Math.min(255, (int)(c.getGreen() * factor)),
-            Math.min(255, (int)(c.getBlue() * factor)),
-            c.getAlpha()
-        );
-    }
-    
-    private Color getBackgroundColor() {
-        if (state.isFoundTarget()) {
-            return SUCCESS_COLOR;
-        } else if (state.isCurrentlyOpened()) {
-            return CURRENT_COLOR;
-        } else if (state.isInPath()) {
-            return PATH_COLOR;
-        } else if (isHovered) {
-            return HOVER_COLOR;
-        } else {
-            return NORMAL_COLOR;
-        }
-    }
-    
-    private void paintBorder(Graphics2D g2d, int x, int y, int width, int height) {
-        Color borderColor = state.isCurrentlyOpened() ? CURRENT_BORDER : BORDER_COLOR;
-        int depth = Math.min(width, height) / 5;
-        
-        g2d.setColor(borderColor);
-        g2d.setStroke(state.isCurrentlyOpened() ? STROKE_2 : STROKE_1);
-        
-        // Front face outline
-        g2d.drawRect(x, y + depth, width - depth - 1, height - depth - 1);
-        
-        // Top face outline
-        polyX[0] = x; polyX[1] = x + depth; polyX[2] = x + width - 1; polyX[3] = x + width - depth - 1;
-        polyY[0] = y + depth; polyY[1] = y; polyY[2] = y; polyY[3] = y + depth;
-        g2d.drawPolygon(polyX, polyY, 4);
-        
-        // Right face outline
-        polyX[0] = x + width - depth - 1; polyX[1] = x + width - 1; polyX[2] = x + width - 1; polyX[3] = x + width - depth - 1;
-        polyY[0] = y + depth; polyY[1] = y; polyY[2] = y + height - depth - 1; polyY[3] = y + height - 1;
-        g2d.drawPolygon(polyX, polyY, 4);
-    }
-    
-    private void paintContent(Graphics2D g2d, int width, int height) {
-        int depth = Math.min(width, height) / 5;
-        // Center content on the front face
-        int faceX = 0;
-        int faceY = depth;
-        int faceW = width - depth;
-        int faceH = height - depth;
-        
-        // Box number (always visible, top of front face)
-        g2d.setColor(getTextColor());
-        g2d.setFont(BOX_FONT);
-        FontMetrics fm = g2d.getFontMetrics();
-        
-        String boxText = String.valueOf(boxNumber);
-        int textWidth = fm.stringWidth(boxText);
-        
-        g2d.drawString(boxText, 
-            faceX + (faceW - textWidth) / 2, 
-            faceY + fm.getAscent() + 2);
-        
-        // Hidden number displayed at the bottom of the front face
-        if (hiddenNumber > 0) {
-            g2d.setFont(HIDDEN_FONT);
-            g2d.setColor(getHiddenTextColor());
-            
-            String hiddenText = String.valueOf(hiddenNumber);
-            FontMetrics hiddenFm = g2d.getFontMetrics();
-            int hiddenWidth = hiddenFm.stringWidth(hiddenText);
-            
-            g2d.drawString(hiddenText, 
-                faceX + (faceW - hiddenWidth) / 2, 
-                faceY + faceH - 4);
-        }
-    }
-    
-    private boolean shouldShowHidden() {
-        return hiddenNumber > 0 && (state.isCurrentlyOpened() || state.isInPath() || state.isFoundTarget());
-    }
-    
-    private Color getTextColor() {
-        if (state.isFoundTarget()) {
-            return Color.WHITE;
-        } else if (state.isCurrentlyOpened()) {
-            return Color.WHITE;
-        } else if (state.isInPath()) {
-            return TEXT_COLOR;
-        } else {
-            return TEXT_COLOR;
-        }
-    }
-    
-    private Color getHiddenTextColor() {
-        if (state.isFoundTarget()) {
-            return Color.WHITE;
-        } else {
-            return ACCENT_COLOR;
-        }
-    }
-    
-    private void paintStateIndicators(Graphics2D g2d, int x, int y, int width, int height) {
-        int depth = Math.min(width, height) / 5;
-        
-        if (state.isCurrentlyOpened()) {
-            g2d.setColor(CURRENT_GLOW);
-            g2d.setStroke(STROKE_3);
-            g2d.drawRect(x - 2, y + depth - 2, width - depth + 3, height - depth + 3);
-        }
-        
-        if (state.isFoundTarget()) {
-            paintSuccessIndicator(g2d, x, y + depth, width - depth, height - depth);
-        }
-    }
-    
-    private void paintSuccessIndicator(Graphics2D g2d, int x, int y, int width, int height) {
-        int checkSize = Math.min(width, height) / 4;
-        int centerX = x + width / 2;
-        int centerY = y + height / 2;
-        
-        // Checkmark
-        g2d.setColor(CHECK_COLOR);
-        g2d.setStroke(STROKE_CHECK);
-        g2d.drawLine(centerX - checkSize/2, centerY, 
-                    centerX - checkSize/4, centerY + checkSize/2);
-        g2d.drawLine(centerX - checkSize/4, centerY + checkSize/2, 
-                    centerX + checkSize/2, centerY - checkSize/2);
-        
-        // Glow effect
-        g2d.setColor(GLOW_COLOR);
-        g2d.setStroke(STROKE_GLOW);
-        g2d.drawLine(centerX - checkSize/2, centerY, 
-                    centerX - checkSize/4, centerY + checkSize/2);
-        g2d.drawLine(centerX - checkSize/4, centerY + checkSize/2, 
-                    centerX + checkSize/2, centerY - checkSize/2);
-    }
-    
-    public int getBoxNumber() {
-        return boxNumber;
-    }
-    
-    public int getHiddenNumber() {
-        return hiddenNumber;
-    }
-    
-    public VisualState getState() {
-        return state;
-    }
-}
\ No newline at end of file
@@ -12,13 +12,15 @@ public final class ModernProgressBar extends JProgressBar {
     private static final Color BACKGROUND_COLOR = new Color(236, 240, 241);
     private static final Color DEFAULT_FOREGROUND = new Color(52, 152, 219);
     private static final Color TEXT_COLOR = new Color(44, 62, 80);
+    // Time constant of the easing: about a tenth of the remaining distance per 60 Hz frame
+    private static final double EASING_NANOS = 150_000_000.0;
     
     private float animatedValue = 0.0f;
-    private Timer animationTimer;
+    private long lastFrameNanos;
+    private final AnimationClock.Animation animation = this::animationFrame;
     
     public ModernProgressBar() {
         setupProgressBar();
-        setupAnimation();
     }
     
     private void setupProgressBar() {
@@ -37,26 +39,33 @@ public final class ModernProgressBar extends JProgressBar {
         setUI(new ModernProgressBarUI());
     }
     
-    private void setupAnimation() {
-        animationTimer = new Timer(16, e -> {
-            float target = getValue();
-            float diff = target - animatedValue;
-            if (Math.abs(diff) > 0.1f) {
-                animatedValue += diff * 0.1f;
-                repaint();
-            } else {
-                animatedValue = target;
-                animationTimer.stop();
-            }
-        });
+    // Eases exponentially towards the value by the time elapsed, so skipped frames do not slow it down
+    boolean animationFrame(long frameNanos) {
+        float target = getValue();
+        float diff = target - animatedValue;
+        double elapsed = Math.max(0, frameNanos - lastFrameNanos);
+        lastFrameNanos = frameNanos;
+        if (Math.abs(diff) > 0.1f) {
+            animatedValue += diff * (float) (1.0 - Math.exp(-elapsed / EASING_NANOS));
+            repaint();
+            return true;
+        }
+        animatedValue = target;
+        repaint();
+        return false;
     }
     
     @Override
     public void setValue(int value) {
         super.setValue(value);
-        if (!animationTimer.isRunning()) {
-            animationTimer.start();
+        if (!AnimationClock.shared().isRunning(animation)) {
+            lastFrameNanos = System.nanoTime();
         }
+        AnimationClock.shared().start(animation);
+    }
+
+    float animatedValue() {
+        return animatedValue;
     }
     
     private class ModernProgressBarUI extends javax.swing.plaf.basic.BasicProgressBarUI {
@@ -3,20 +3,28 @@ package prisoners.gui;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.io.InputStream;
 import javax.swing.*;
 
 /**
  * Transparent overlay panel that animates a prisoner icon moving between boxes.
  * Uses a glass pane approach to render the prisoner on top of the box grid.
+ *
+ * <p>
+ * The prisoner and its shadow are rendered once into a sprite at the screen's scale and copied on every frame.
+ * A frame repaints only where the prisoner was and where it is now, so the boxes underneath are repainted
+ * around the prisoner instead of across the whole window.
  */
 public final class PrisonerAnimationLayer extends JPanel {
 
     private static final int PRISONER_SIZE = 40;
-    private static final int TIMER_INTERVAL_MS = 10; // ~100fps for smooth animation
-
-    private final Image prisonerImage;
+    // The shadow reaches below the prisoner's feet
+    private static final int SPRITE_HEIGHT = PRISONER_SIZE + 4;
+    private static final Color SHADOW_COLOR = new Color(0, 0, 0, 40);
+
+    private final boolean iconAvailable;
+    private Image sprite;
+    private double spriteScaleX;
+    private double spriteScaleY;
     private boolean animationEnabled = true;
     private int animationDurationMs = 300;
     private boolean visible3D = false;
@@ -26,23 +34,29 @@ public final class PrisonerAnimationLayer extends JPanel {
     private double currentY = -100;
     private double targetX = -100;
     private double targetY = -100;
-    private int animationStep = 0;
-    private int currentTotalSteps = 15;
+    private double startX;
+    private double startY;
+    private long moveStart;
+    private long moveNanos;
+    private double moveProgress = 0;
     private boolean animating = false;
-    private Timer animationTimer;
+    private Runnable onArrival;
+    private final AnimationClock.Animation movement = this::movementFrame;
+
+    // Where the prisoner is drawn, empty while hidden; reused so that frames allocate nothing
+    private final Rectangle shownBounds = new Rectangle();
+    private final Rectangle dirty = new Rectangle();
 
     // Reference to the box grid for coordinate mapping
-    private JPanel boxGridPanel;
-    private ModernBoxPanel[] boxPanels;
+    private BoxGridPanel boxGrid;
 
     public PrisonerAnimationLayer() {
         setOpaque(false);
-        prisonerImage = loadPrisonerImage();
+        iconAvailable = getClass().getResource("/icons/prisoner.svg") != null;
     }
 
-    public void setBoxGrid(JPanel boxGridPanel, ModernBoxPanel[] boxPanels) {
-        this.boxGridPanel = boxGridPanel;
-        this.boxPanels = boxPanels;
+    public void setBoxGrid(BoxGridPanel boxGrid) {
+        this.boxGrid = boxGrid;
     }
 
     public void setAnimationEnabled(boolean enabled) {
@@ -50,7 +64,7 @@ public final class PrisonerAnimationLayer extends JPanel {
         if (!enabled) {
             currentX = -100;
             currentY = -100;
-            repaint();
+            moved();
         }
     }
 
@@ -71,20 +85,20 @@ public final class PrisonerAnimationLayer extends JPanel {
      * Calls the callback when the animation completes.
      */
     public void moveTo(int boxIndex, Runnable onComplete) {
-        if (!animationEnabled || boxPanels == null || boxGridPanel == null) {
+        if (!animationEnabled || boxGrid == null) {
             if (onComplete != null) onComplete.run();
             return;
         }
 
-        if (boxIndex < 0 || boxIndex >= boxPanels.length) {
+        if (boxIndex < 0 || boxIndex >= boxGrid.getBoxCount()) {
             if (onComplete != null) onComplete.run();
             return;
         }
 
         // Get the target box position in this layer's coordinate space
-        var boxPanel = boxPanels[boxIndex];
+        var box = boxGrid.boxBounds(boxIndex);
         Point boxLocation = SwingUtilities.convertPoint(
-            boxPanel, boxPanel.getWidth() / 2, 0, this
+            boxGrid, box.x + box.width / 2, box.y, this
         );
 
         targetX = boxLocation.x - PRISONER_SIZE / 2.0;
@@ -94,108 +108,139 @@ public final class PrisonerAnimationLayer extends JPanel {
         if (currentX < -50) {
             currentX = targetX;
             currentY = targetY;
-            repaint();
+            moved();
             if (onComplete != null) onComplete.run();
             return;
         }
 
-        // Animate movement
-        animationStep = 0;
+        // Animate movement on the shared frame clock; a move still in progress is abandoned
+        startX = currentX;
+        startY = currentY;
+        moveStart = System.nanoTime();
+        moveNanos = animationDurationMs * 1_000_000L;
+        moveProgress = 0;
         animating = true;
-        double startX = currentX;
-        double startY = currentY;
-        int totalSteps = Math.max(2, animationDurationMs / TIMER_INTERVAL_MS);
-        currentTotalSteps = totalSteps;
+        onArrival = onComplete;
+        AnimationClock.shared().start(movement);
+    }
 
-        if (animationTimer != null && animationTimer.isRunning()) {
-            animationTimer.stop();
+    private boolean movementFrame(long frameNanos) {
+        moveProgress = Math.min(1.0, Math.max(0.0, (double) (frameNanos - moveStart) / moveNanos));
+        if (moveProgress >= 1.0) {
+            animating = false;
+            currentX = targetX;
+            currentY = targetY;
+            moved();
+            var callback = onArrival;
+            onArrival = null;
+            if (callback != null) callback.run();
+            return false;
         }
-
-        animationTimer = new Timer(TIMER_INTERVAL_MS, e -> {
-            animationStep++;
-            // Ease-in-out interpolation
-            double t = (double) animationStep / totalSteps;
-            double ease = t < 0.5 ? 2 * t * t : 1 - Math.pow(-2 * t + 2, 2) / 2;
-
-            currentX = startX + (targetX - startX) * ease;
-            currentY = startY + (targetY - startY) * ease;
-
-            repaint();
-
-            if (animationStep >= totalSteps) {
-                animating = false;
-                ((Timer) e.getSource()).stop();
-                currentX = targetX;
-                currentY = targetY;
-                repaint();
-                if (onComplete != null) onComplete.run();
-            }
-        });
-        animationTimer.start();
+        // Ease-in-out interpolation
+        double t = moveProgress;
+        double ease = t < 0.5 ? 2 * t * t : 1 - Math.pow(-2 * t + 2, 2) / 2;
+        currentX = startX + (targetX - startX) * ease;
+        currentY = startY + (targetY - startY) * ease;
+        moved();
+        return true;
     }
 
     /**
      * Resets the prisoner position (hides the icon).
      */
     public void resetPosition() {
-        if (animationTimer != null && animationTimer.isRunning()) {
-            animationTimer.stop();
-        }
+        AnimationClock.shared().stop(movement);
+        onArrival = null;
         currentX = -100;
         currentY = -100;
         animating = false;
-        repaint();
+        moved();
     }
 
     /**
      * Immediately finishes any in-progress animation, snapping to the end position.
      */
     public void finishImmediately() {
-        if (animationTimer != null && animationTimer.isRunning()) {
-            animationTimer.stop();
-        }
+        AnimationClock.shared().stop(movement);
+        onArrival = null;
         if (animating) {
             currentX = targetX;
             currentY = targetY;
             animating = false;
-            repaint();
+            moved();
+        }
+    }
+
+    /**
+     * Moves {@link #shownBounds} to the prisoner's position and repaints the union of the old and new bounds.
+     */
+    private void moved() {
+        dirty.setBounds(shownBounds);
+        if (animationEnabled && currentX >= -50) {
+            // Add a subtle bounce when moving
+            int bounceOffset = animating ? (int) (Math.sin(moveProgress * Math.PI) * 5) : 0;
+            shownBounds.setBounds((int) currentX, (int) currentY - bounceOffset, PRISONER_SIZE, SPRITE_HEIGHT);
+        } else {
+            shownBounds.setBounds(0, 0, 0, 0);
+        }
+        if (dirty.isEmpty()) {
+            dirty.setBounds(shownBounds);
+        } else if (!shownBounds.isEmpty()) {
+            dirty.add(shownBounds);
+        }
+        if (!dirty.isEmpty()) {
+            repaint(dirty.x, dirty.y, dirty.width, dirty.height);
         }
     }
 
+    Rectangle shownBounds() {
+        return new Rectangle(shownBounds);
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        if (!animationEnabled || currentX < -50) {
+        if (shownBounds.isEmpty()) {
             return;
         }
+        g.drawImage(sprite((Graphics2D) g), shownBounds.x, shownBounds.y, PRISONER_SIZE, SPRITE_HEIGHT, null);
+    }
 
-        Graphics2D g2d = (Graphics2D) g.create();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-
-        int drawX = (int) currentX;
-        int drawY = (int) currentY;
-
-        // Add a subtle bounce when moving
-        if (animating) {
-            double bounceOffset = Math.sin((double) animationStep / currentTotalSteps * Math.PI) * 5;
-            drawY -= (int) bounceOffset;
+    /**
+     * The prisoner and its shadow, rendered for the device scale of {@code g} so the copy is one to one.
+     */
+    private Image sprite(Graphics2D g) {
+        var transform = g.getTransform();
+        if (sprite != null && spriteScaleX == transform.getScaleX() && spriteScaleY == transform.getScaleY()) {
+            return sprite;
         }
+        spriteScaleX = transform.getScaleX();
+        spriteScaleY = transform.getScaleY();
+        int width = Math.max(1, (int) Math.ceil(PRISONER_SIZE * spriteScaleX));
+        int height = Math.max(1, (int) Math.ceil(SPRITE_HEIGHT * spriteScaleY));
+        var configuration = g.getDeviceConfiguration();
+        var image = configuration != null
+            ? configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+            : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = image.createGraphics();
+        g2d.scale(spriteScaleX, spriteScaleY);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         // Draw prisoner shadow
-        g2d.setColor(new Color(0, 0, 0, 40));
-        g2d.fillOval(drawX + 5, drawY + PRISONER_SIZE - 5, PRISONER_SIZE - 10, 8);
+        g2d.setColor(SHADOW_COLOR);
+        g2d.fillOval(5, PRISONER_SIZE - 5, PRISONER_SIZE - 10, 8);
 
-        // Draw prisoner image
-        if (prisonerImage != null) {
-            g2d.drawImage(prisonerImage, drawX, drawY, PRISONER_SIZE, PRISONER_SIZE, null);
+        // Since Java doesn't natively render SVG, the icon is drawn to match it
+        if (iconAvailable) {
+            drawCartoonPrisoner(g2d, 0, 0, PRISONER_SIZE);
         } else {
             // Fallback: draw a simple prisoner figure
-            drawFallbackPrisoner(g2d, drawX, drawY);
+            drawFallbackPrisoner(g2d, 0, 0);
         }
-
         g2d.dispose();
+        sprite = image;
+        return sprite;
     }
 
     private void drawFallbackPrisoner(Graphics2D g2d, int x, int y) {
@@ -212,28 +257,6 @@ public final class PrisonerAnimationLayer extends JPanel {
         }
     }
 
-    private Image loadPrisonerImage() {
-        try {
-            // Load SVG as a rendered BufferedImage
-            InputStream svgStream = getClass().getResourceAsStream("/icons/prisoner.svg");
-            if (svgStream == null) {
-                return null;
-            }
-            svgStream.close();
-
-            // Since Java doesn't natively render SVG, we'll use the fallback drawn version
-            // but render it to a BufferedImage for better performance
-            BufferedImage img = new BufferedImage(PRISONER_SIZE, PRISONER_SIZE, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g2d = img.createGraphics();
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            drawCartoonPrisoner(g2d, 0, 0, PRISONER_SIZE);
-            g2d.dispose();
-            return img;
-        } catch (IOException e) {
-            return null;
-        }
-    }
-
     /**
      * Draws a cartoon prisoner programmatically (since Java can't render SVG natively).
      */
@@ -5,7 +5,6 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
-import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GridBagConstraints;
@@ -17,7 +16,7 @@ import java.awt.RenderingHints;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.stream.IntStream;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
@@ -40,7 +39,13 @@ import javax.swing.border.LineBorder;
 import prisoners.Box;
 import prisoners.FreedomExperiment;
 import prisoners.Prisoner;
+import prisoners.SimulationConfig;
 import prisoners.StepListener;
+import prisoners.jobs.JobManager;
+import prisoners.jobs.JobOptions;
+import prisoners.jobs.Priority;
+import prisoners.jobs.SimulationJob;
+import prisoners.metrics.SimulationMetrics;
 
 /**
  * Modern, visually appealing Swing application for visualizing the 100 Prisoners Problem.
@@ -77,8 +82,12 @@ public final class PrisonersVisualizationApp extends JFrame {
     private static final Font BODY_FONT = new Font("Segoe UI", Font.PLAIN, 14);
     private static final Font BUTTON_FONT = new Font("Segoe UI", Font.BOLD, 14);
     
+    // Seeded reference run shown before an experiment starts (cached per prisoner count)
+    private static final long REFERENCE_TRIALS = 10_000;
+    private static final long REFERENCE_SEED = 100L;
+    
     // UI Components
-    private final JPanel boxGridPanel;
+    private final BoxGridPanel boxGridPanel;
     private final JPanel controlPanel;
     private final JPanel statsPanel;
     private final ModernButton startButton;
@@ -93,10 +102,10 @@ public final class PrisonersVisualizationApp extends JFrame {
     private final ModernProgressBar experimentProgress;
     
     // Experiment state
-    private ModernBoxPanel[] boxPanels;
     private FreedomExperiment experiment;
     private final ExecutorService executorService;
     private Future<?> experimentTask;
+    private SimulationJob referenceJob;
     private UIState currentState;
     private int numberOfPrisoners = 100;
     
@@ -112,14 +121,15 @@ public final class PrisonersVisualizationApp extends JFrame {
         setupModernLookAndFeel();
         
         // Initialize components with modern styling
-        boxGridPanel = createModernBoxGrid();
+        boxGridPanel = new BoxGridPanel(numberOfPrisoners);
+        boxGridPanel.setBackground(BACKGROUND_COLOR);
         controlPanel = createModernControlPanel();
         statsPanel = createModernStatsPanel();
         startButton = new ModernButton("Start", PRIMARY_COLOR);
         stopButton = new ModernButton("Stop", DANGER_COLOR);
         resetButton = new ModernButton("Reset", DARK_GRAY);
         
-        prisonersSpinner = createModernSpinner(new SpinnerNumberModel(100, 4, 1000, 2));
+        prisonersSpinner = createModernSpinner(new SpinnerNumberModel(100, 4, 10000, 2));
         delaySpinner = createModernSpinner(new SpinnerNumberModel(200, 5, 2000, 5));
         
         // Animation toggle
@@ -147,6 +157,7 @@ public final class PrisonersVisualizationApp extends JFrame {
         setupWindow();
         
         executorService = Executors.newVirtualThreadPerTaskExecutor();
+        SimulationMetrics.register();
     }
     
     private void setupModernLookAndFeel() {
@@ -172,27 +183,6 @@ public final class PrisonersVisualizationApp extends JFrame {
         }
     }
     
-    private JPanel createModernBoxGrid() {
-        var panel = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2d = (Graphics2D) g;
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                
-                // Subtle gradient background
-                GradientPaint gradient = new GradientPaint(
-                    0, 0, BACKGROUND_COLOR,
-                    0, getHeight(), LIGHT_GRAY
-                );
-                g2d.setPaint(gradient);
-                g2d.fillRect(0, 0, getWidth(), getHeight());
-            }
-        };
-        panel.setBackground(BACKGROUND_COLOR);
-        return panel;
-    }
-    
     private JPanel createModernControlPanel() {
         var panel = createModernCard();
         panel.setLayout(new FlowLayout(FlowLayout.CENTER, 15, 15));
@@ -546,36 +536,11 @@ public final class PrisonersVisualizationApp extends JFrame {
     }
     
     private void updateBoxGrid() {
-        boxGridPanel.removeAll();
         numberOfPrisoners = (Integer) prisonersSpinner.getValue();
         
-        // Calculate optimal grid dimensions
-        int cols = (int) Math.ceil(Math.sqrt(numberOfPrisoners));
-        int rows = (int) Math.ceil((double) numberOfPrisoners / cols);
-        
-        boxGridPanel.setLayout(new GridLayout(rows, cols, 8, 8));
-        boxGridPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
-        
-        boxPanels = IntStream.range(0, numberOfPrisoners)
-                .mapToObj(i -> new ModernBoxPanel(i + 1))
-                .toArray(ModernBoxPanel[]::new);
-        
-        for (var boxPanel : boxPanels) {
-            boxGridPanel.add(boxPanel);
-        }
-        
-        // Set preferred size to ensure all rows are visible without scroll clipping
-        int cellHeight = 70; // matches ModernBoxPanel preferred height
-        int cellWidth = 70;
-        int totalWidth = cols * (cellWidth + 8) + 20;
-        int totalHeight = rows * (cellHeight + 8) + 20;
-        boxGridPanel.setPreferredSize(new Dimension(totalWidth, totalHeight));
-        
-        // Update animation layer with new box references
-        prisonerAnimationLayer.setBoxGrid(boxGridPanel, boxPanels);
-        
-        boxGridPanel.revalidate();
-        boxGridPanel.repaint();
+        // One component draws every box; it sizes its cells to the count and scrolls beyond that
+        boxGridPanel.setBoxCount(numberOfPrisoners);
+        prisonerAnimationLayer.setBoxGrid(boxGridPanel);
     }
     
     private void setupEventHandlers() {
@@ -657,11 +622,7 @@ public final class PrisonersVisualizationApp extends JFrame {
         
         SwingUtilities.invokeLater(() -> {
             // Reset all box visuals with animation
-            if (boxPanels != null) {
-                for (var boxPanel : boxPanels) {
-                    boxPanel.reset();
-                }
-            }
+            boxGridPanel.reset();
             
             // Reset prisoner animation
             prisonerAnimationLayer.resetPosition();
@@ -673,14 +634,41 @@ public final class PrisonersVisualizationApp extends JFrame {
             updateStatistics();
             experimentProgress.setValue(0);
             experimentProgress.setString("Ready to start");
+            showReferenceRate();
         });
     }
     
+    /**
+     * Shows the success rate of a seeded reference simulation for the current prisoner count.
+     * The simulation runs as a low-priority job on the shared scheduler and results come from the shared
+     * {@link prisoners.ResultCache}, so revisiting a prisoner count is instant. A reference run that is no
+     * longer needed (the prisoner count changed again) is cancelled.
+     */
+    private void showReferenceRate() {
+        if (referenceJob != null) {
+            referenceJob.cancel();
+        }
+        var config = SimulationConfig.classic(numberOfPrisoners, REFERENCE_TRIALS).withSeed(REFERENCE_SEED);
+        try {
+            referenceJob = JobManager.shared().submit(config, JobOptions.of(Priority.LOW));
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        referenceJob.result().thenAccept(result -> SwingUtilities.invokeLater(() -> {
+            if (!currentState.isRunning() && currentState.totalAttempts() == 0
+                    && numberOfPrisoners == config.prisoners()) {
+                experimentProgress.setString(String.format("Ready to start (reference %.1f%%)", result.successRate()));
+            }
+        }));
+    }
+    
     private void updateUIState(UIState newState) {
         currentState = newState;
     }
     
     private void runExperimentLoop() {
+        var metrics = SimulationMetrics.get();
+        metrics.sessionOpened();
         try {
             while (currentState.isRunning() && !Thread.currentThread().isInterrupted()) {
                 experiment = new FreedomExperiment(numberOfPrisoners);
@@ -688,9 +676,7 @@ public final class PrisonersVisualizationApp extends JFrame {
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("Running experiment...");
                     statusLabel.setForeground(PRIMARY_COLOR);
-                    for (var boxPanel : boxPanels) {
-                        boxPanel.reset();
-                    }
+                    boxGridPanel.reset();
                 });
                 
                 // Run experiment with modern step listener
@@ -727,6 +713,8 @@ public final class PrisonersVisualizationApp extends JFrame {
                 statusLabel.setForeground(DANGER_COLOR);
                 stopExperiment();
             });
+        } finally {
+            metrics.sessionClosed();
         }
     }
     
@@ -756,10 +744,14 @@ public final class PrisonersVisualizationApp extends JFrame {
      * Modern step listener with enhanced visual feedback and prisoner animation.
      */
     private final class ModernStepListener implements StepListener {
+        // Counted down when the animation of the last step is done
+        private java.util.concurrent.CountDownLatch latch;
+
         @Override
         public void onStep(Prisoner prisoner, Box box) {
             // Use a latch to wait for animation to complete before proceeding
             var latch = new java.util.concurrent.CountDownLatch(1);
+            this.latch = latch;
             
             SwingUtilities.invokeLater(() -> {
                 if (currentState.currentPrisonerNumber() != prisoner.number()) {
@@ -776,9 +768,7 @@ public final class PrisonersVisualizationApp extends JFrame {
                     currentPrisonerLabel.setForeground(PRIMARY_COLOR);
                     
                     // Reset previous prisoner's path with fade effect
-                    for (var boxPanel : boxPanels) {
-                        boxPanel.clearPath();
-                    }
+                    boxGridPanel.clearPath();
                     
                     // Reset prisoner position for new prisoner
                     prisonerAnimationLayer.resetPosition();
@@ -786,18 +776,17 @@ public final class PrisonersVisualizationApp extends JFrame {
                 
                 // Animate prisoner moving to this box
                 int boxIndex = box.label() - 1;
-                if (boxIndex >= 0 && boxIndex < boxPanels.length) {
+                if (boxIndex >= 0 && boxIndex < boxGridPanel.getBoxCount()) {
                     prisonerAnimationLayer.moveTo(boxIndex, () -> {
                         SwingUtilities.invokeLater(() -> {
                             // After arriving at the box, open it and reveal the hidden number
-                            var boxPanel = boxPanels[boxIndex];
-                            boxPanel.setHiddenNumber(box.hiddenNumber());
-                            boxPanel.setCurrentlyOpened(true);
+                            boxGridPanel.setHiddenNumber(boxIndex, box.hiddenNumber());
+                            boxGridPanel.setCurrentlyOpened(boxIndex, true);
                             
                             if (box.hiddenNumber() == prisoner.number()) {
-                                boxPanel.setFoundTarget(true);
+                                boxGridPanel.setFoundTarget(boxIndex, true);
                             } else {
-                                boxPanel.setInPath(true);
+                                boxGridPanel.setInPath(boxIndex, true);
                             }
                             latch.countDown();
                         });
@@ -806,7 +795,10 @@ public final class PrisonersVisualizationApp extends JFrame {
                     latch.countDown();
                 }
             });
-            
+        }
+
+        @Override
+        public void pace() {
             try {
                 // Wait for animation to finish before the experiment proceeds
                 latch.await();
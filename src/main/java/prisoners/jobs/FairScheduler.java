@@ -0,0 +1,164 @@
+package prisoners.jobs;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import prisoners.SimulationConfig;
+import prisoners.SimulationResult;
+import prisoners.SimulationRunner;
+
+/**
+ * Slices {@link SimulationJob}s into chunks of trials and hands the chunks to a fixed set of worker threads.
+ *
+ * <p>
+ * Chunks are interleaved by stride scheduling: every job carries a virtual "pass" that advances by the cost of
+ * a chunk divided by the job's weight, and the ready job with the lowest pass runs next. A billion-trial job
+ * therefore gets its weighted share of the workers instead of blocking everyone behind it. Priorities are
+ * strict: a lower priority only runs when no higher-priority chunk is ready.
+ *
+ * <p>
+ * Because every trial is seeded from its index, chunks of one job may run on several workers at once and the
+ * merged result is still the same as a sequential run. Cancelled or expired jobs are dropped the next time they
+ * reach the head of the queue; a chunk that is already running stops after its current trial.
+ */
+final class FairScheduler implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(FairScheduler.class.getName());
+
+    /**
+     * Box openings per chunk, at most (tens of milliseconds of work). Bounds how stale progress gets and how
+     * long a newly submitted high-priority job waits for a worker.
+     */
+    static final long CHUNK_WORK = 1 << 24;
+
+    private static final Comparator<Task> ORDER = Comparator
+        .comparing((Task task) -> task.job.options().priority()).reversed()
+        .thenComparingLong(task -> task.pass)
+        .thenComparingLong(task -> task.sequence);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(ORDER);
+    private final long[] virtualTime = new long[Priority.values().length];
+    private final List<Thread> workers = new ArrayList<>();
+    private final SimulationRunner runner = new SimulationRunner();
+    private long sequence;
+
+    FairScheduler(int threads) {
+        var factory = Thread.ofPlatform().name("simulation-worker-", 0).daemon().factory();
+        for (int i = 0; i < threads; i++) {
+            var worker = factory.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Trials per chunk so that every chunk costs at most about {@link #CHUNK_WORK} box openings.
+     */
+    static long chunkTrials(SimulationConfig config) {
+        return Math.max(1, CHUNK_WORK / config.trialCost());
+    }
+
+    void schedule(SimulationJob job) {
+        var config = job.config();
+        long baseSeed = config.seed().orElseGet(() -> ThreadLocalRandom.current().nextLong());
+        lock.lock();
+        try {
+            // Start at the current virtual time of the priority level, so a new job neither waits for the
+            // pass of long-running jobs nor gets to catch up on time it never waited
+            var task = new Task(job, baseSeed, sequence++, virtualTime[job.options().priority().ordinal()]);
+            queue.add(task);
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                run(next());
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    private Chunk next() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                var task = queue.poll();
+                if (task == null) {
+                    ready.await();
+                } else if (!task.job.state().isTerminal()) {
+                    virtualTime[task.job.options().priority().ordinal()] = task.pass;
+                    long from = task.nextTrial;
+                    long to = Math.min(task.job.config().trials(), from + task.chunkTrials);
+                    task.nextTrial = to;
+                    task.pass += task.stride;
+                    if (to < task.job.config().trials()) {
+                        queue.add(task);
+                    }
+                    return new Chunk(task, from, to);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run(Chunk chunk) {
+        var job = chunk.task.job;
+        if (!job.start()) {
+            return;
+        }
+        var config = job.config();
+        try {
+            var counts = runner.runTrials(config, chunk.task.baseSeed, chunk.fromTrial, chunk.toTrial,
+                job.observer());
+            var total = job.recordChunk(counts);
+            if (total.trials() == config.trials()) {
+                job.succeed(new SimulationResult(config, total.successes()));
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, String.format("Simulation job %s failed", job.id()), e);
+            job.fail(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    private static final class Task {
+        final SimulationJob job;
+        final long baseSeed;
+        final long sequence;
+        final long chunkTrials;
+        final long stride;
+        long nextTrial;
+        long pass;
+
+        Task(SimulationJob job, long baseSeed, long sequence, long pass) {
+            this.job = job;
+            this.baseSeed = baseSeed;
+            this.sequence = sequence;
+            this.chunkTrials = chunkTrials(job.config());
+            this.stride = Math.max(1, chunkTrials * job.config().trialCost() / job.options().weight());
+            this.pass = pass;
+        }
+    }
+
+    private record Chunk(Task task, long fromTrial, long toTrial) {
+    }
+}
@@ -0,0 +1,180 @@
+package prisoners.jobs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import prisoners.ResultCache;
+import prisoners.SimulationConfig;
+import prisoners.SimulationResult;
+import prisoners.TrialCounts;
+import prisoners.TrialObserver;
+
+/**
+ * Runs {@link SimulationJob}s in the background on a {@link FairScheduler}, so heavy Monte Carlo runs never
+ * tie up HTTP request threads, WebSocket selectors or the Swing event thread, and never starve each other.
+ *
+ * <p>
+ * At most {@code maxActiveJobs} jobs may be queued or running at once; beyond that
+ * {@link #submit(SimulationConfig, JobOptions)} throws {@link RejectedExecutionException} instead of buffering
+ * without limit. Finished jobs are kept for polling until {@code maxRetainedJobs} is exceeded.
+ */
+public final class JobManager implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_ACTIVE_JOBS = 64;
+    public static final int DEFAULT_RETAINED_JOBS = 1_000;
+
+    private static volatile JobManager shared;
+
+    private final FairScheduler scheduler;
+    private final int maxActiveJobs;
+    private final int maxRetainedJobs;
+    private final ResultCache cache;
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final Map<String, SimulationJob> jobs = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<SimulationJob> history = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    /**
+     * @param cache where seeded results are looked up and stored, or {@code null} to always simulate
+     */
+    public JobManager(int threads, int maxActiveJobs, int maxRetainedJobs, ResultCache cache) {
+        if (threads < 1 || maxActiveJobs < 1 || maxRetainedJobs < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Threads, active jobs and retained jobs must be positive (got: %d, %d, %d)",
+                threads, maxActiveJobs, maxRetainedJobs));
+        }
+        this.scheduler = new FairScheduler(threads);
+        this.maxActiveJobs = maxActiveJobs;
+        this.maxRetainedJobs = maxRetainedJobs;
+        this.cache = cache;
+    }
+
+    /**
+     * Process-wide job manager shared by the server and the GUI, sized through the {@code prisoners.jobs.threads}
+     * (default: available processors) and {@code prisoners.jobs.max} system properties and backed by the shared
+     * {@link ResultCache}.
+     */
+    public static JobManager shared() {
+        var manager = shared;
+        if (manager == null) {
+            synchronized (JobManager.class) {
+                manager = shared;
+                if (manager == null) {
+                    manager = new JobManager(
+                        Integer.getInteger("prisoners.jobs.threads", Runtime.getRuntime().availableProcessors()),
+                        Integer.getInteger("prisoners.jobs.max", DEFAULT_MAX_ACTIVE_JOBS),
+                        DEFAULT_RETAINED_JOBS, ResultCache.shared());
+                    shared = manager;
+                }
+            }
+        }
+        return manager;
+    }
+
+    public SimulationJob submit(SimulationConfig config) {
+        return submit(config, JobOptions.DEFAULT);
+    }
+
+    public SimulationJob submit(SimulationConfig config, JobOptions options) {
+        return submit(config, options, TrialObserver.NONE);
+    }
+
+    /**
+     * Queues a simulation. Seeded configurations already in the cache complete immediately, unless an
+     * {@code observer} wants to see every trial.
+     *
+     * @param observer called after every trial, from any of the worker threads
+     * @throws RejectedExecutionException if too many jobs are active or the manager has been closed
+     */
+    public SimulationJob submit(SimulationConfig config, JobOptions options, TrialObserver observer) {
+        if (closed) {
+            throw new RejectedExecutionException("Job manager is closed");
+        }
+        // Built before taking a slot: a job that cannot be created must not hold one
+        var job = new SimulationJob(UUID.randomUUID().toString(), config, options, observer);
+        if (activeJobs.incrementAndGet() > maxActiveJobs) {
+            activeJobs.decrementAndGet();
+            throw new RejectedExecutionException(String.format("Too many active jobs (maximum: %d)", maxActiveJobs));
+        }
+        job.result().whenComplete((result, failure) -> activeJobs.decrementAndGet());
+        evictFinishedJobs();
+
+        if (cache != null) {
+            job.result().thenAccept(cache::put);
+        }
+        jobs.put(job.id(), job);
+        history.add(job);
+
+        var cached = cache == null || observer != TrialObserver.NONE
+            ? Optional.<SimulationResult>empty()
+            : cache.get(config);
+        if (cached.isPresent()) {
+            job.start();
+            job.recordChunk(new TrialCounts(config.trials(), cached.get().successes()));
+            job.succeed(cached.get());
+            return job;
+        }
+        options.timeout().ifPresent(timeout -> CompletableFuture
+            .delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS)
+            .execute(job::expire));
+        scheduler.schedule(job);
+        return job;
+    }
+
+    public Optional<SimulationJob> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * All retained jobs, oldest first.
+     */
+    public List<SimulationJob> list() {
+        return List.copyOf(history);
+    }
+
+    /**
+     * Cancels a job; its slot is released immediately, its in-flight trials finish in the background.
+     */
+    public Optional<SimulationJob> cancel(String id) {
+        var job = get(id);
+        job.ifPresent(SimulationJob::cancel);
+        return job;
+    }
+
+    public long queuedJobs() {
+        return jobs.values().stream().filter(job -> job.state() == JobState.QUEUED).count();
+    }
+
+    public long runningJobs() {
+        return jobs.values().stream().filter(job -> job.state() == JobState.RUNNING).count();
+    }
+
+    private void evictFinishedJobs() {
+        var iterator = history.iterator();
+        while (jobs.size() >= maxRetainedJobs && iterator.hasNext()) {
+            var job = iterator.next();
+            if (job.state().isTerminal()) {
+                iterator.remove();
+                jobs.remove(job.id());
+            }
+        }
+    }
+
+    /**
+     * Stops accepting jobs, cancels everything that has not finished and stops the worker threads.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        jobs.values().forEach(SimulationJob::cancel);
+        scheduler.close();
+    }
+}
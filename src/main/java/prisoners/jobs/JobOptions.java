@@ -0,0 +1,44 @@
+package prisoners.jobs;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * How a {@link SimulationJob} is scheduled.
+ *
+ * @param weight  share of the worker threads relative to other jobs of the same priority
+ * @param timeout how long the job may take from submission before it fails; empty for no deadline
+ */
+public record JobOptions(Priority priority, int weight, Optional<Duration> timeout) {
+
+    public static final int MAX_WEIGHT = 100;
+
+    // Keeps the nanoTime deadline (and the delayed expiry) far from overflowing
+    public static final Duration MAX_TIMEOUT = Duration.ofDays(1);
+
+    public static final JobOptions DEFAULT = new JobOptions(Priority.NORMAL, 1, Optional.empty());
+
+    public JobOptions {
+        if (weight < 1 || weight > MAX_WEIGHT) {
+            throw new IllegalArgumentException(String.format(
+                "Weight must be between 1 and %d (got: %d)", MAX_WEIGHT, weight));
+        }
+        if (timeout.isPresent() && (timeout.get().isNegative() || timeout.get().isZero()
+                || timeout.get().compareTo(MAX_TIMEOUT) > 0)) {
+            throw new IllegalArgumentException(String.format(
+                "Timeout must be positive and at most %s (got: %s)", MAX_TIMEOUT, timeout.get()));
+        }
+    }
+
+    public static JobOptions of(Priority priority) {
+        return new JobOptions(priority, 1, Optional.empty());
+    }
+
+    public JobOptions withWeight(int weight) {
+        return new JobOptions(priority, weight, timeout);
+    }
+
+    public JobOptions withTimeout(Duration timeout) {
+        return new JobOptions(priority, weight, Optional.of(timeout));
+    }
+}
@@ -0,0 +1,17 @@
+package prisoners.jobs;
+
+/**
+ * Lifecycle of a {@link SimulationJob}. A job only ever moves forward: {@code QUEUED -> RUNNING} and then to
+ * exactly one of the terminal states.
+ */
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED;
+
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+}
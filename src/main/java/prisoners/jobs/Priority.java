@@ -0,0 +1,24 @@
+package prisoners.jobs;
+
+/**
+ * Scheduling class of a {@link SimulationJob}. Chunks of a higher priority always run before chunks of a lower
+ * one; jobs of the same priority share the worker threads in proportion to their weights.
+ */
+public enum Priority {
+    LOW,
+    NORMAL,
+    HIGH;
+
+    /**
+     * Lenient parser for HTTP parameters ("low", "NORMAL", ...).
+     */
+    public static Priority parse(String value) {
+        return switch (value.trim().toLowerCase()) {
+            case "low" -> LOW;
+            case "normal" -> NORMAL;
+            case "high" -> HIGH;
+            default -> throw new IllegalArgumentException(
+                String.format("Unknown priority: %s (expected: low, normal, high)", value));
+        };
+    }
+}
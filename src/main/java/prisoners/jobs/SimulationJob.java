@@ -0,0 +1,196 @@
+package prisoners.jobs;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import prisoners.FreedomExperiment;
+import prisoners.SimulationConfig;
+import prisoners.SimulationResult;
+import prisoners.TrialCounts;
+import prisoners.TrialObserver;
+
+/**
+ * A bulk simulation submitted to a {@link JobManager}. Progress is published after every chunk of trials, so
+ * it can be polled cheaply from any thread while the job runs.
+ */
+public final class SimulationJob {
+
+    private final String id;
+    private final SimulationConfig config;
+    private final JobOptions options;
+    private final TrialObserver observer;
+    private final Instant submittedAt = Instant.now();
+    private final long deadlineNanos;
+    private final TrialObserver stoppingObserver;
+    private final AtomicReference<JobState> state = new AtomicReference<>(JobState.QUEUED);
+    private final AtomicReference<TrialCounts> progress = new AtomicReference<>(TrialCounts.EMPTY);
+    private final CompletableFuture<SimulationResult> result = new CompletableFuture<>();
+
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    SimulationJob(String id, SimulationConfig config, JobOptions options, TrialObserver observer) {
+        this.id = id;
+        this.config = config;
+        this.options = options;
+        this.observer = observer;
+        this.deadlineNanos = System.nanoTime() + options.timeout().map(Duration::toNanos).orElse(0L);
+        this.stoppingObserver = stoppingObserver();
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public SimulationConfig config() {
+        return config;
+    }
+
+    public JobOptions options() {
+        return options;
+    }
+
+    /**
+     * The submitter's observer, which also stops a running chunk as soon as the job is cancelled, fails or
+     * passes its deadline.
+     */
+    TrialObserver observer() {
+        return stoppingObserver;
+    }
+
+    private TrialObserver stoppingObserver() {
+        return new TrialObserver() {
+            @Override
+            public void trialFinished(FreedomExperiment experiment, boolean success) {
+                observer.trialFinished(experiment, success);
+            }
+
+            @Override
+            public boolean isStopRequested() {
+                if (options.timeout().isPresent() && System.nanoTime() - deadlineNanos >= 0) {
+                    expire();
+                }
+                return state.get().isTerminal() || observer.isStopRequested();
+            }
+        };
+    }
+
+    /**
+     * When the job fails unless it has finished, if it has a timeout.
+     */
+    public Optional<Instant> deadline() {
+        return options.timeout().map(submittedAt::plus);
+    }
+
+    public JobState state() {
+        return state.get();
+    }
+
+    /**
+     * Trials finished so far and how many of them succeeded.
+     */
+    public TrialCounts progress() {
+        return progress.get();
+    }
+
+    /**
+     * Completes with the result once the job succeeds; completes exceptionally if it fails or is cancelled.
+     */
+    public CompletableFuture<SimulationResult> result() {
+        return result;
+    }
+
+    /**
+     * Cancels the job if it has not finished yet. A running job stops once its in-flight trials complete.
+     *
+     * @return {@code true} if this call cancelled the job
+     */
+    public boolean cancel() {
+        for (var current = state.get(); !current.isTerminal(); current = state.get()) {
+            if (state.compareAndSet(current, JobState.CANCELLED)) {
+                finishedAt = Instant.now();
+                result.cancel(false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isCancelled() {
+        return state.get() == JobState.CANCELLED;
+    }
+
+    public JobStatus status() {
+        var current = state.get();
+        var counts = progress.get();
+        return new JobStatus(id, current.name(), options.priority().name(), options.weight(),
+            config.prisoners(), config.limit(), config.strategy().name(),
+            config.seed().isPresent() ? config.seed().getAsLong() : null,
+            config.trials(), counts.trials(), counts.successes(),
+            counts.trials() * 100.0 / config.trials(),
+            counts.trials() > 0 ? counts.successes() * 100.0 / counts.trials() : null,
+            submittedAt.toString(), timestamp(startedAt), timestamp(finishedAt),
+            deadline().map(Instant::toString).orElse(null), error);
+    }
+
+    private static String timestamp(Instant instant) {
+        return instant == null ? null : instant.toString();
+    }
+
+    /**
+     * Moves a queued job to {@link JobState#RUNNING} when its first chunk starts.
+     *
+     * @return whether the job is running, i.e. {@code false} once it was cancelled, expired or failed
+     */
+    boolean start() {
+        if (state.compareAndSet(JobState.QUEUED, JobState.RUNNING)) {
+            startedAt = Instant.now();
+        }
+        return state.get() == JobState.RUNNING;
+    }
+
+    /**
+     * Adds a finished chunk to the progress and returns the new total.
+     */
+    TrialCounts recordChunk(TrialCounts counts) {
+        return progress.accumulateAndGet(counts, TrialCounts::merge);
+    }
+
+    void succeed(SimulationResult simulationResult) {
+        if (state.compareAndSet(JobState.RUNNING, JobState.SUCCEEDED)) {
+            finishedAt = Instant.now();
+            result.complete(simulationResult);
+        }
+    }
+
+    void fail(Throwable cause) {
+        for (var current = state.get(); !current.isTerminal(); current = state.get()) {
+            if (state.compareAndSet(current, JobState.FAILED)) {
+                error = String.valueOf(cause.getMessage());
+                finishedAt = Instant.now();
+                result.completeExceptionally(cause);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fails the job if it is still queued or running when its deadline passes.
+     */
+    void expire() {
+        fail(new TimeoutException(String.format("Deadline exceeded after %s", options.timeout().orElseThrow())));
+    }
+
+    /**
+     * Point-in-time view of a job, shaped for JSON. Absent values are {@code null} and left out by Gson.
+     */
+    public record JobStatus(String id, String state, String priority, int weight, int prisoners, int limit, String strategy, Long seed,
+            long trials, long completedTrials, long successes, double progress, Double successRate,
+            String submittedAt, String startedAt, String finishedAt, String deadline, String error) {
+    }
+}
@@ -0,0 +1,100 @@
+package prisoners.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for what the WebSocket server pushes to its viewers: frames, UTF-8 encoded payload bytes and how long
+ * each experiment step took from being produced until the socket had written it.
+ */
+public final class DeliveryMetrics {
+
+    private static final DeliveryMetrics INSTANCE = new DeliveryMetrics();
+
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder summariesSent = new LongAdder();
+    private final LongAdder messagesDropped = new LongAdder();
+    private final LongAdder deflatePayloadBytes = new LongAdder();
+    private final LongAdder deflateWireBytes = new LongAdder();
+    private final LatencyHistogram stepLatency = new LatencyHistogram();
+
+    private DeliveryMetrics() {
+    }
+
+    public static DeliveryMetrics get() {
+        return INSTANCE;
+    }
+
+    public void recordMessage(int bytes) {
+        messagesSent.increment();
+        bytesSent.add(bytes);
+    }
+
+    /**
+     * Records a message encoded once and sent to {@code recipients} connections.
+     */
+    public void recordBroadcast(int bytes, int recipients) {
+        messagesSent.add(recipients);
+        bytesSent.add((long) bytes * recipients);
+    }
+
+    /**
+     * Records broadcast messages skipped for viewers that were too far behind to take them.
+     */
+    public void recordDropped(int messages) {
+        messagesDropped.add(messages);
+    }
+
+    /**
+     * Records prisoners reported as turbo-mode summaries instead of step by step.
+     */
+    public void recordSummaries(int prisoners) {
+        summariesSent.add(prisoners);
+    }
+
+    /**
+     * Records a message handed to a connection that negotiated compression.
+     */
+    public void recordDeflateInput(int bytes) {
+        deflatePayloadBytes.add(bytes);
+    }
+
+    /**
+     * Records what such a message was compressed to.
+     */
+    public void recordDeflateOutput(int bytes) {
+        deflateWireBytes.add(bytes);
+    }
+
+    public void recordStepLatency(long nanos) {
+        stepLatency.record(nanos);
+    }
+
+    public long messagesSent() {
+        return messagesSent.sum();
+    }
+
+    public long bytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long summariesSent() {
+        return summariesSent.sum();
+    }
+
+    public long messagesDropped() {
+        return messagesDropped.sum();
+    }
+
+    public long deflatePayloadBytes() {
+        return deflatePayloadBytes.sum();
+    }
+
+    public long deflateWireBytes() {
+        return deflateWireBytes.sum();
+    }
+
+    public LatencyHistogram stepLatency() {
+        return stepLatency;
+    }
+}
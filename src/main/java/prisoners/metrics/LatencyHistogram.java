@@ -0,0 +1,112 @@
+package prisoners.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent log-linear histogram of durations in nanoseconds.
+ *
+ * <p>
+ * Each power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so quantiles are accurate to
+ * about 25%. Every bucket is a {@link LongAdder}, which keeps recording from many threads contention-free.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)].increment();
+        sum.add(value);
+    }
+
+    public long count() {
+        long total = 0;
+        for (var bucket : counts) {
+            total += bucket.sum();
+        }
+        return total;
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * Estimated value at {@code quantile} (0..1): the upper bound of the bucket holding that rank,
+     * or 0 when nothing was recorded.
+     */
+    public long quantile(double quantile) {
+        var snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Number of recorded values that are less than or equal to {@code nanos}, rounded to bucket
+     * boundaries (used for cumulative exposition formats).
+     */
+    public long countAtOrBelow(long nanos) {
+        int last = bucketOf(nanos);
+        // A bucket only fully counts when its upper bound does not exceed the limit
+        if (upperBound(last) > nanos) {
+            last--;
+        }
+        long total = 0;
+        for (int i = 0; i <= last; i++) {
+            total += counts[i].sum();
+        }
+        return total;
+    }
+
+    public void reset() {
+        for (var bucket : counts) {
+            bucket.reset();
+        }
+        sum.reset();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (1L << exponent) + (sub << (exponent - SUB_BUCKET_BITS));
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
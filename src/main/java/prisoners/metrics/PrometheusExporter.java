@@ -0,0 +1,106 @@
+package prisoners.metrics;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Renders {@link SimulationMetrics}, {@link DeliveryMetrics} and any registered gauges in the Prometheus
+ * text exposition format (version 0.0.4).
+ *
+ * <p>
+ * Everything is read from striped counters at scrape time; nothing here is on the simulation hot path.
+ * Per-second rates are left to the scraper ({@code rate(prisoners_websocket_messages_sent_total[1m])}).
+ */
+public final class PrometheusExporter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Histogram bucket boundaries in seconds
+    private static final double[] LATENCY_BUCKETS = {
+        0.00001, 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5
+    };
+
+    private record Gauge(String name, String help, DoubleSupplier value) {
+    }
+
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    /**
+     * Adds a gauge evaluated on every scrape, e.g. a queue depth owned by another component.
+     */
+    public void registerGauge(String name, String help, DoubleSupplier value) {
+        gauges.add(new Gauge(name, help, value));
+    }
+
+    public String scrape() {
+        var out = new StringBuilder(4096);
+        var simulation = SimulationMetrics.get();
+        var delivery = DeliveryMetrics.get();
+
+        counter(out, "prisoners_trials_total", "Simulated trials.", simulation.getTotalTrials());
+        counter(out, "prisoners_trial_successes_total", "Trials in which every prisoner escaped.",
+            simulation.getCumulativeSuccesses());
+        gauge(out, "prisoners_trials_per_second", "Trials per second over the last second.",
+            simulation.getTrialsPerSecond());
+        gauge(out, "prisoners_trials_in_flight", "Trials currently being simulated.", simulation.getTrialsInFlight());
+        histogram(out, "prisoners_trial_duration_seconds", "Wall time per simulated trial.",
+            simulation.trialLatency());
+
+        gauge(out, "prisoners_websocket_sessions", "Open WebSocket sessions.", simulation.getActiveSessions());
+        counter(out, "prisoners_websocket_messages_sent_total", "WebSocket frames sent to viewers.",
+            delivery.messagesSent());
+        counter(out, "prisoners_websocket_bytes_sent_total", "Payload bytes sent to viewers.", delivery.bytesSent());
+        counter(out, "prisoners_websocket_summaries_total", "Prisoners coalesced into turbo-mode summaries.",
+            delivery.summariesSent());
+        counter(out, "prisoners_websocket_messages_dropped_total",
+            "Room broadcasts skipped for viewers that had fallen behind.", delivery.messagesDropped());
+        counter(out, "prisoners_websocket_deflate_payload_bytes_total",
+            "Message bytes sent to viewers that negotiated permessage-deflate.", delivery.deflatePayloadBytes());
+        counter(out, "prisoners_websocket_deflate_wire_bytes_total",
+            "The same messages after compression.", delivery.deflateWireBytes());
+        histogram(out, "prisoners_step_delivery_seconds", "Time from producing a step until the socket has written it.",
+            delivery.stepLatency());
+
+        for (var g : gauges) {
+            gauge(out, g.name(), g.help(), g.value().getAsDouble());
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, LatencyHistogram histogram) {
+        header(out, name, help, "histogram");
+        // Read the total first so cumulative buckets never exceed it within one scrape
+        long count = histogram.count();
+        for (double le : LATENCY_BUCKETS) {
+            long atOrBelow = Math.min(count, histogram.countAtOrBelow((long) (le * 1e9)));
+            out.append(name).append("_bucket{le=\"").append(format(le)).append("\"} ").append(atOrBelow).append('\n');
+        }
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(count).append('\n');
+        out.append(name).append("_sum ").append(format(histogram.sum() / 1e9)).append('\n');
+        out.append(name).append("_count ").append(count).append('\n');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%s", value);
+    }
+}
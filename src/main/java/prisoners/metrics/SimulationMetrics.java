@@ -0,0 +1,179 @@
+package prisoners.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide simulation throughput and latency, exposed over JMX so monitoring can scrape it directly.
+ *
+ * <p>
+ * Recording only touches {@link LongAdder}s, so it is safe and cheap from any number of simulation threads.
+ * The trial rate is sampled once per second by a daemon thread.
+ *
+ * <p>
+ * Trial latency goes into two histograms: {@link #trialLatency()} only ever grows, as the Prometheus histogram
+ * it is exported as must, while the JMX quantiles read a window that {@link #resetStatistics()} clears.
+ */
+public final class SimulationMetrics implements SimulationMetricsMXBean {
+
+    public static final String OBJECT_NAME = "prisoners:type=SimulationMetrics";
+
+    private static final Logger logger = Logger.getLogger(SimulationMetrics.class.getName());
+    private static final SimulationMetrics INSTANCE = new SimulationMetrics();
+
+    private final LongAdder trials = new LongAdder();
+    private final LongAdder trialsInFlight = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder allocationTrials = new LongAdder();
+    private final LatencyHistogram trialLatency = new LatencyHistogram();
+    private final LatencyHistogram latencyWindow = new LatencyHistogram();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    private volatile double trialsPerSecond;
+    private long lastSampleTrials;
+    private long lastSampleNanos = System.nanoTime();
+
+    private SimulationMetrics() {
+        threadBean = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+        var sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "simulation-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sampleRate, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public static SimulationMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server; calling it again is a no-op.
+     */
+    public static SimulationMetrics register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered by another entry point in this JVM
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Could not register " + OBJECT_NAME, e);
+        }
+        return INSTANCE;
+    }
+
+    public void trialStarted() {
+        trialsInFlight.increment();
+    }
+
+    public void recordTrial(long nanos, boolean success) {
+        trialsInFlight.decrement();
+        trials.increment();
+        if (success) {
+            successes.increment();
+        }
+        trialLatency.record(nanos);
+        latencyWindow.record(nanos);
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 when the JVM cannot tell.
+     */
+    public long currentThreadAllocatedBytes() {
+        return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * Attributes the allocation measured between two {@link #currentThreadAllocatedBytes()} calls
+     * to {@code trialCount} trials.
+     */
+    public void recordAllocation(long startBytes, long endBytes, long trialCount) {
+        if (startBytes >= 0 && endBytes >= startBytes && trialCount > 0) {
+            allocatedBytes.add(endBytes - startBytes);
+            allocationTrials.add(trialCount);
+        }
+    }
+
+    public void sessionOpened() {
+        activeSessions.incrementAndGet();
+    }
+
+    public void sessionClosed() {
+        activeSessions.decrementAndGet();
+    }
+
+    /**
+     * Every trial latency since the process started; never reset.
+     */
+    public LatencyHistogram trialLatency() {
+        return trialLatency;
+    }
+
+    private synchronized void sampleRate() {
+        long now = System.nanoTime();
+        long total = trials.sum();
+        trialsPerSecond = (total - lastSampleTrials) * 1e9 / Math.max(1, now - lastSampleNanos);
+        lastSampleTrials = total;
+        lastSampleNanos = now;
+    }
+
+    @Override
+    public double getTrialsPerSecond() {
+        return trialsPerSecond;
+    }
+
+    @Override
+    public long getTotalTrials() {
+        return trials.sum();
+    }
+
+    @Override
+    public long getTrialsInFlight() {
+        return trialsInFlight.sum();
+    }
+
+    @Override
+    public long getCumulativeSuccesses() {
+        return successes.sum();
+    }
+
+    @Override
+    public long getP50NanosPerTrial() {
+        return latencyWindow.quantile(0.50);
+    }
+
+    @Override
+    public long getP99NanosPerTrial() {
+        return latencyWindow.quantile(0.99);
+    }
+
+    @Override
+    public long getAllocatedBytesPerTrial() {
+        long count = allocationTrials.sum();
+        return count > 0 ? allocatedBytes.sum() / count : 0;
+    }
+
+    @Override
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    @Override
+    public void resetStatistics() {
+        latencyWindow.reset();
+        allocatedBytes.reset();
+        allocationTrials.reset();
+    }
+}
@@ -0,0 +1,28 @@
+package prisoners.metrics;
+
+/**
+ * Management interface of {@link SimulationMetrics}, registered as {@value SimulationMetrics#OBJECT_NAME}.
+ */
+public interface SimulationMetricsMXBean {
+
+    /** Trials completed per second, averaged over the last sampling interval. */
+    double getTrialsPerSecond();
+
+    long getTotalTrials();
+
+    long getTrialsInFlight();
+
+    long getCumulativeSuccesses();
+
+    long getP50NanosPerTrial();
+
+    long getP99NanosPerTrial();
+
+    /** Heap bytes allocated by simulation threads divided by the trials they ran. */
+    long getAllocatedBytesPerTrial();
+
+    int getActiveSessions();
+
+    /** Clears the latency quantiles and allocation figures; counters and exported histograms keep running. */
+    void resetStatistics();
+}
@@ -0,0 +1,535 @@
+document.addEventListener("DOMContentLoaded", () => {
+    const board = document.getElementById("board");
+    const boxCanvas = document.getElementById("boxes");
+    const prisonerCanvas = document.getElementById("prisoner");
+    const status = document.getElementById("status");
+    const speedInput = document.getElementById("speed");
+    const turboInput = document.getElementById("turbo");
+    const prisonersInput = document.getElementById("prisoners");
+    const trialsInput = document.getElementById("trials");
+    const modeInput = document.getElementById("mode");
+    const statsContainer = document.getElementById("stats");
+    const roomInput = document.getElementById("room");
+    const joinButton = document.getElementById("joinButton");
+
+    // Same server and port as this page
+    socket = new WebSocket(`${location.protocol === "https:" ? "wss" : "ws"}://${location.host}/ws`);
+
+    // The boxes are drawn on one canvas, from typed arrays indexed by box number - 1; only the boxes that
+    // changed since the last animation frame are repainted. The prisoner is drawn on a second canvas on top, so
+    // moving it never repaints a box.
+    const BOX_CLOSED = 0;
+    const BOX_OPENED = 1; // opened by the current prisoner, who did not find their number in it
+    const BOX_FOUND = 2;
+    const MAX_CELL = 60;
+    const MIN_CELL = 4;
+    const FREE_BAND = 50;
+    const createBoxGrid = (boxCanvas, prisonerCanvas) => {
+        const boxes = boxCanvas.getContext("2d");
+        const marker = prisonerCanvas.getContext("2d");
+        let count = 0;
+        let state = new Uint8Array(0);
+        let revealed = new Int32Array(0); // hidden number shown in each box, 0 while never opened
+        let dirty = new Uint8Array(0);
+        let dirtyList = new Int32Array(0);
+        let dirtyCount = 0;
+        let path = new Int32Array(0); // boxes opened by the current prisoner
+        let pathLength = 0;
+        let fullRepaint = true;
+        let bandDirty = true;
+        let width = 0, height = 0, cell = MAX_CELL, columns = 1;
+        let prisonerNumber = 0, free = 0;
+        let trialOver = false; // the result is in: the next box opened belongs to a new trial
+        let prisonerX = 0, prisonerY = 0, targetX = 0, targetY = 0, prisonerFree = false;
+        let drawnPrisoner = null; // what the prisoner canvas shows: [x, y, radius, number, free]
+
+        const markDirty = (index) => {
+            if (!dirty[index]) {
+                dirty[index] = 1;
+                dirtyList[dirtyCount++] = index;
+            }
+        };
+
+        const layout = () => {
+            const dpr = window.devicePixelRatio || 1;
+            width = boxCanvas.parentElement.clientWidth;
+            const maxHeight = Math.max(200, window.innerHeight - 220);
+            for (cell = MAX_CELL; cell > MIN_CELL; cell--) {
+                if (Math.ceil(count / Math.max(1, Math.floor(width / cell))) * cell <= maxHeight) {
+                    break;
+                }
+            }
+            columns = Math.max(1, Math.floor(width / cell));
+            height = Math.ceil(count / columns) * cell + FREE_BAND;
+            for (const canvas of [boxCanvas, prisonerCanvas]) {
+                canvas.style.width = `${width}px`;
+                canvas.style.height = `${height}px`;
+                canvas.width = Math.round(width * dpr);
+                canvas.height = Math.round(height * dpr);
+                canvas.getContext("2d").setTransform(dpr, 0, 0, dpr, 0, 0);
+            }
+            fullRepaint = true;
+            drawnPrisoner = null;
+        };
+
+        const drawBox = (index) => {
+            const gap = cell >= 20 ? Math.round(cell * 0.15) : 1;
+            const size = cell - gap;
+            const x = (index % columns) * cell;
+            const y = Math.floor(index / columns) * cell;
+            boxes.clearRect(x, y, cell, cell);
+            boxes.fillStyle = state[index] === BOX_OPENED ? "grey" : state[index] === BOX_FOUND ? "#3f7fd9" : "#4CAF50";
+            boxes.beginPath();
+            boxes.roundRect(x, y, size, size, Math.min(5, size / 6));
+            boxes.fill();
+            if (size < 14) {
+                return;
+            }
+            boxes.fillStyle = "#fff";
+            const center = x + size / 2;
+            if (size >= 36) {
+                boxes.font = `${Math.round(size / 5)}px sans-serif`;
+                boxes.fillText(`Box ${index + 1}`, center, y + size * 0.32);
+            }
+            if (revealed[index] !== 0) {
+                boxes.font = `bold ${Math.round(size / (size >= 36 ? 3.5 : 2.5))}px sans-serif`;
+                boxes.fillText(String(revealed[index]), center, y + size * (size >= 36 ? 0.68 : 0.5));
+            }
+        };
+
+        const drawFreeBand = () => {
+            const y = height - FREE_BAND;
+            boxes.clearRect(0, y, width, FREE_BAND);
+            boxes.fillStyle = "#d3d3d3";
+            boxes.fillRect(1, y + 1, width - 2, FREE_BAND - 2);
+            boxes.setLineDash([6, 4]);
+            boxes.strokeStyle = "#4CAF50";
+            boxes.lineWidth = 2;
+            boxes.strokeRect(1, y + 1, width - 2, FREE_BAND - 2);
+            boxes.setLineDash([]);
+            boxes.fillStyle = "#333";
+            boxes.font = "14px sans-serif";
+            boxes.fillText(`${free} free`, width / 2, y + FREE_BAND / 2);
+        };
+
+        const drawPrisoner = (elapsed) => {
+            if (prisonerNumber === 0) {
+                return;
+            }
+            // Glide towards the target box, about as fast as the old one-second CSS transition
+            const step = Math.min(1, elapsed / 200);
+            prisonerX += (targetX - prisonerX) * step;
+            prisonerY += (targetY - prisonerY) * step;
+            if (Math.abs(targetX - prisonerX) < 0.5 && Math.abs(targetY - prisonerY) < 0.5) {
+                prisonerX = targetX;
+                prisonerY = targetY;
+            }
+            const radius = Math.max(3, Math.min(15, cell * 0.3));
+            const shown = drawnPrisoner;
+            if (shown && shown[0] === prisonerX && shown[1] === prisonerY && shown[2] === radius
+                    && shown[3] === prisonerNumber && shown[4] === prisonerFree) {
+                return;
+            }
+            if (shown) {
+                marker.clearRect(shown[0] - shown[2] - 1, shown[1] - shown[2] - 1, shown[2] * 2 + 2, shown[2] * 2 + 2);
+            }
+            marker.fillStyle = prisonerFree ? "blue" : "red";
+            marker.beginPath();
+            marker.arc(prisonerX, prisonerY, radius, 0, 2 * Math.PI);
+            marker.fill();
+            if (radius >= 8) {
+                marker.fillStyle = "#fff";
+                marker.font = `bold ${Math.round(radius * (prisonerNumber > 999 ? 0.6 : 0.9))}px sans-serif`;
+                marker.fillText(String(prisonerNumber), prisonerX, prisonerY);
+            }
+            drawnPrisoner = [prisonerX, prisonerY, radius, prisonerNumber, prisonerFree];
+        };
+
+        const moveTo = (boxNumber) => {
+            const radius = Math.max(3, Math.min(15, cell * 0.3));
+            targetX = ((boxNumber - 1) % columns) * cell + radius;
+            targetY = Math.floor((boxNumber - 1) / columns) * cell + radius;
+        };
+
+        return {
+            size: () => count,
+
+            // One box per prisoner; the arrays are only reallocated when the number of prisoners changes
+            resize(boxCount) {
+                if (boxCount !== count) {
+                    count = boxCount;
+                    state = new Uint8Array(count);
+                    revealed = new Int32Array(count);
+                    dirty = new Uint8Array(count);
+                    dirtyList = new Int32Array(count);
+                    path = new Int32Array(count);
+                    layout();
+                }
+                this.reset();
+            },
+
+            reset() {
+                state.fill(BOX_CLOSED);
+                revealed.fill(0);
+                pathLength = 0;
+                prisonerNumber = 0;
+                free = 0;
+                trialOver = false;
+                fullRepaint = true;
+                if (drawnPrisoner) {
+                    marker.clearRect(0, 0, width, height);
+                    drawnPrisoner = null;
+                }
+            },
+
+            // The trial's result is in: it stays on screen until the next trial opens its first box, even if that
+            // trial starts with the same prisoner
+            endTrial() {
+                trialOver = true;
+                prisonerNumber = 0;
+            },
+
+            relayout() {
+                if (count > 0) {
+                    layout();
+                    moveTo(1);
+                }
+            },
+
+            // A prisoner opened a box
+            open(prisoner, boxNumber, hiddenNumber) {
+                const index = boxNumber - 1;
+                if (index < 0 || index >= count) {
+                    return;
+                }
+                if (prisoner !== prisonerNumber) {
+                    // A new prisoner starts from a clean row of boxes; the numbers seen so far stay visible
+                    for (let i = 0; i < pathLength; i++) {
+                        state[path[i]] = BOX_CLOSED;
+                        markDirty(path[i]);
+                    }
+                    pathLength = 0;
+                    if (trialOver) {
+                        // The next trial, with other numbers in the boxes
+                        revealed.fill(0);
+                        free = 0;
+                        bandDirty = true;
+                        fullRepaint = true;
+                        trialOver = false;
+                    }
+                    prisonerNumber = prisoner;
+                    prisonerFree = false;
+                    moveTo(boxNumber);
+                    if (drawnPrisoner === null) {
+                        prisonerX = targetX;
+                        prisonerY = targetY;
+                    }
+                }
+                revealed[index] = hiddenNumber;
+                if (hiddenNumber === prisoner) {
+                    state[index] = BOX_FOUND;
+                    prisonerFree = true;
+                    free++;
+                    bandDirty = true;
+                    targetX = width / 2;
+                    targetY = height - FREE_BAND / 2;
+                } else {
+                    state[index] = BOX_OPENED;
+                    moveTo(boxNumber);
+                }
+                path[pathLength++] = index;
+                markDirty(index);
+            },
+
+            // Paints what changed since the last frame
+            draw(elapsed) {
+                boxes.textAlign = "center";
+                boxes.textBaseline = "middle";
+                marker.textAlign = "center";
+                marker.textBaseline = "middle";
+                if (fullRepaint) {
+                    boxes.clearRect(0, 0, width, height);
+                    for (let i = 0; i < count; i++) {
+                        drawBox(i);
+                    }
+                    fullRepaint = false;
+                    bandDirty = true;
+                } else {
+                    for (let i = 0; i < dirtyCount; i++) {
+                        drawBox(dirtyList[i]);
+                    }
+                }
+                for (let i = 0; i < dirtyCount; i++) {
+                    dirty[dirtyList[i]] = 0;
+                }
+                dirtyCount = 0;
+                if (bandDirty) {
+                    drawFreeBand();
+                    bandDirty = false;
+                }
+                drawPrisoner(elapsed);
+            }
+        };
+    };
+    const grid = createBoxGrid(boxCanvas, prisonerCanvas);
+    grid.resize(Number(prisonersInput.value));
+    window.addEventListener("resize", () => grid.relayout());
+
+    socket.binaryType = "arraybuffer";
+
+    socket.onopen = () => {
+        console.log("WebSocket connection established");
+    };
+
+    // Steps arrive in batches (one message per prisoner) and are played one every `stepDelay` milliseconds,
+    // or as many as fit in an animation frame without a delay. The server only sends another batch once we
+    // hand back a credit, so a slow browser never makes it buffer without limit.
+    const INITIAL_CREDITS = 2;
+    const MAX_STEPS_PER_FRAME = 20000;
+    let stepDelay = 500;
+
+    // Pending steps as [prisoner, box, hidden number] triples; a box of STEP_CREDIT or STEP_RESULT marks the end
+    // of a batch or a trial instead
+    const STEP_CREDIT = -1;
+    const STEP_RESULT = -2;
+    let pending = new Int32Array(3 * 1024);
+    let pendingStart = 0;
+    let pendingEnd = 0;
+    const enqueue = (prisonerNumber, boxNumber, hiddenNumber) => {
+        if (pendingEnd + 3 > pending.length) {
+            // Move what is left to the front, growing the buffer if it is more than half full
+            const left = pending.slice(pendingStart, pendingEnd);
+            if (left.length * 2 > pending.length) {
+                pending = new Int32Array(pending.length * 2);
+            }
+            pending.set(left);
+            pendingEnd -= pendingStart;
+            pendingStart = 0;
+        }
+        pending[pendingEnd++] = prisonerNumber;
+        pending[pendingEnd++] = boxNumber;
+        pending[pendingEnd++] = hiddenNumber;
+    };
+    const clearPending = () => {
+        pendingStart = 0;
+        pendingEnd = 0;
+    };
+
+    const MESSAGE_STEPS = 1;
+    const MESSAGE_RESULT = 2;
+    const MESSAGE_SUMMARY = 3;
+    const MESSAGE_STATS = 4;
+    const MESSAGE_REPLAY = 5;
+
+    const grantCredit = () => {
+        if (socket.readyState === WebSocket.OPEN) {
+            socket.send(JSON.stringify({ action: 'credit', count: 1 }));
+        }
+    };
+
+    // Binary frames are little-endian int32s: [type, ...payload] (see StepProtocol.java)
+    const decodeFrame = (buffer) => {
+        const view = new DataView(buffer);
+        const type = view.getInt32(0, true);
+        if (type === MESSAGE_STEPS) {
+            const prisonerNumber = view.getInt32(4, true);
+            const count = view.getInt32(8, true);
+            const steps = new Array(count);
+            for (let i = 0; i < count; i++) {
+                steps[i] = [view.getInt32(12 + 8 * i, true), view.getInt32(16 + 8 * i, true)];
+            }
+            return { type: "steps", prisonerNumber, steps };
+        } else if (type === MESSAGE_RESULT) {
+            return { type: "result", success: view.getInt32(4, true) === 1 };
+        } else if (type === MESSAGE_SUMMARY) {
+            const count = view.getInt32(4, true);
+            const prisoners = new Array(count);
+            for (let i = 0; i < count; i++) {
+                const offset = 8 + 12 * i;
+                prisoners[i] = [view.getInt32(offset, true), view.getInt32(offset + 4, true), view.getInt32(offset + 8, true)];
+            }
+            return { type: "summary", prisoners };
+        } else if (type === MESSAGE_STATS) {
+            const binCount = view.getInt32(28, true);
+            const histogram = new Array(binCount);
+            for (let i = 0; i < binCount; i++) {
+                histogram[i] = view.getInt32(32 + 4 * i, true);
+            }
+            const completed = view.getInt32(12, true);
+            const successes = view.getInt32(16, true);
+            return {
+                type: "stats",
+                done: view.getInt32(4, true) === 1,
+                trials: view.getInt32(8, true),
+                completed,
+                successes,
+                successRate: completed > 0 ? successes * 100 / completed : 0,
+                limit: view.getInt32(20, true),
+                binWidth: view.getInt32(24, true),
+                histogram
+            };
+        } else if (type === MESSAGE_REPLAY) {
+            const prisoners = view.getInt32(12, true);
+            const hiddenNumbers = new Array(prisoners);
+            for (let i = 0; i < prisoners; i++) {
+                hiddenNumbers[i] = view.getInt32(16 + 4 * i, true);
+            }
+            return { type: "replay", success: view.getInt32(4, true) === 1, limit: view.getInt32(8, true), hiddenNumbers };
+        }
+        return { type: "unknown" };
+    };
+
+    socket.onmessage = (event) => {
+        const message = event.data instanceof ArrayBuffer ? decodeFrame(event.data) : JSON.parse(event.data);
+        if (message.type === "steps") {
+            for (const [boxNumber, hiddenNumber] of message.steps) {
+                enqueue(message.prisonerNumber, boxNumber, hiddenNumber);
+            }
+            enqueue(0, STEP_CREDIT, 0);
+        } else if (message.type === "replay") {
+            queueReplay(message);
+        } else if (message.type === "summary") {
+            // Turbo mode: one line per prisoner instead of every opened box
+            const [prisonerNumber, opened, found] = message.prisoners[message.prisoners.length - 1];
+            status.textContent = `Prisoner ${prisonerNumber} opened ${opened} boxes and ${found ? "found" : "missed"} their number`;
+            grantCredit();
+        } else if (message.type === "stats") {
+            showStats(message);
+            grantCredit();
+        } else if (message.type === "result") {
+            // Shown once the trial's steps before it have been played
+            enqueue(0, STEP_RESULT, message.success ? 1 : 0);
+            grantCredit();
+        } else if (message.type === "room") {
+            // Watching a shared experiment: the room decides the number of prisoners and the pace
+            grid.resize(message.prisoners);
+            status.textContent = `Watching room "${message.room}" with ${message.viewers} viewer(s)`;
+        } else if (message.type === "error") {
+            status.textContent = `Error: ${message.message}`;
+        }
+    };
+
+    // Replay mode: the server sends the permutation of a whole trial and we follow the chains ourselves, in the
+    // same order as FreedomExperiment: prisoners 1..N, each opening at most `limit` boxes, until one fails
+    const queueReplay = (replay) => {
+        const hiddenNumbers = replay.hiddenNumbers;
+        for (let prisonerNumber = 1; prisonerNumber <= hiddenNumbers.length; prisonerNumber++) {
+            let boxNumber = prisonerNumber;
+            let found = false;
+            for (let opened = 0; opened < replay.limit && !found; opened++) {
+                const hiddenNumber = hiddenNumbers[boxNumber - 1];
+                enqueue(prisonerNumber, boxNumber, hiddenNumber);
+                found = hiddenNumber === prisonerNumber;
+                boxNumber = hiddenNumber;
+            }
+            if (!found) {
+                break;
+            }
+        }
+        enqueue(0, STEP_RESULT, replay.success ? 1 : 0);
+        enqueue(0, STEP_CREDIT, 0);
+    };
+
+    const showResult = (success) => {
+        status.textContent = success ? "Everyone escaped!" : "The prisoners failed.";
+        console.log("Experiment result: " + success);
+    };
+
+    // Plays the steps that are due and repaints, once per animation frame
+    let nextStepAt = 0;
+    let lastFrame = performance.now();
+    const animate = (now) => {
+        requestAnimationFrame(animate);
+        let budget = MAX_STEPS_PER_FRAME;
+        while (pendingStart < pendingEnd && budget > 0 && now >= nextStepAt) {
+            const prisonerNumber = pending[pendingStart];
+            const boxNumber = pending[pendingStart + 1];
+            const hiddenNumber = pending[pendingStart + 2];
+            pendingStart += 3;
+            if (boxNumber === STEP_CREDIT) {
+                // The previous batch has been played: ready for the next one
+                grantCredit();
+            } else if (boxNumber === STEP_RESULT) {
+                showResult(hiddenNumber === 1);
+                grid.endTrial();
+            } else {
+                grid.open(prisonerNumber, boxNumber, hiddenNumber);
+                budget--;
+                // Steps that fall behind are caught up in the next frames rather than all at once
+                nextStepAt = Math.max(nextStepAt, now - stepDelay) + stepDelay;
+            }
+        }
+        if (pendingStart === pendingEnd) {
+            clearPending();
+        }
+        grid.draw(now - lastFrame);
+        lastFrame = now;
+    };
+    requestAnimationFrame(animate);
+
+    // Statistics mode: success rate so far and the distribution of the longest cycle, with the box limit
+    // marked (trials to the right of it fail)
+    const showStats = (stats) => {
+        status.textContent = `${stats.completed} / ${stats.trials} trials, ` +
+            `${stats.successRate.toFixed(2)}% escaped${stats.done ? " (done)" : ""}`;
+        const max = Math.max(1, ...stats.histogram);
+        statsContainer.replaceChildren(...stats.histogram.map((count, i) => {
+            const bar = document.createElement("div");
+            bar.className = "bar";
+            bar.style.height = `${(count / max) * 100}%`;
+            if (i * stats.binWidth >= stats.limit) {
+                bar.classList.add("failed");
+            }
+            bar.title = `Longest cycle ${i * stats.binWidth + 1}-${(i + 1) * stats.binWidth}: ${count} trials`;
+            return bar;
+        }));
+    };
+
+    socket.onerror = (error) => {
+        console.error("WebSocket error:", error);
+    };
+
+    socket.onclose = () => {
+        console.log("WebSocket connection closed");
+    };
+
+    // Start the experiment -- DO NOT DELETE THIS CODE
+    startButton.addEventListener('click', () => {
+        const prisoners = Number(prisonersInput.value);
+        const mode = modeInput.value;
+        clearPending();
+        grid.resize(prisoners);
+        board.style.display = mode === "stats" ? "none" : "";
+        statsContainer.style.display = mode === "stats" ? "" : "none";
+        socket.send(JSON.stringify({
+            action: 'start', format: 'binary', credits: INITIAL_CREDITS,
+            mode, prisoners, trials: Number(trialsInput.value)
+        }));
+    });
+
+    speedInput.addEventListener('change', () => {
+        stepDelay = Number(speedInput.value);
+        socket.send(JSON.stringify({ action: 'speed', delay: stepDelay }));
+    });
+
+    turboInput.addEventListener('change', () => {
+        socket.send(JSON.stringify({ action: 'turbo', enabled: turboInput.checked }));
+    });
+
+    // Watch the experiment broadcast in a room; the first viewer decides its number of prisoners
+    joinButton.addEventListener('click', () => {
+        board.style.display = "";
+        statsContainer.style.display = "none";
+        clearPending();
+        socket.send(JSON.stringify({
+            action: 'join', room: roomInput.value, format: 'binary', prisoners: Number(prisonersInput.value)
+        }));
+    });
+
+    // Stop the experiment -- DO NOT DELETE THIS CODE
+    stopButton.addEventListener('click', () => {
+        socket.send(JSON.stringify({ action: 'stop' }));
+        clearPending();
+    });
+
+});
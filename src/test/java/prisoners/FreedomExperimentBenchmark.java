@@ -0,0 +1,80 @@
+package prisoners;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH microbenchmarks for the simulation engine, reported in ns per trial.
+ *
+ * <p>
+ * Run with {@code ./mvnw test-compile exec:exec@benchmark}; pass JMH options through {@code -Djmh.args},
+ * e.g. {@code -Djmh.args="-prof gc"} for allocation per trial or
+ * {@code -Djmh.args="-p prisoners=100000,1000000 FreedomExperimentBenchmark.shuffle"} for the large sizes.
+ * Successful chain-following trials cost O(N²) box openings, so full runs above 10,000 prisoners take
+ * seconds per operation and are left out of the default parameter set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FreedomExperimentBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int prisoners;
+
+    @Param({"CHAIN_FOLLOWING", "RANDOM"})
+    private Strategy strategy;
+
+    private FreedomExperiment experiment;
+
+    @Setup(Level.Trial)
+    public void createExperiment() {
+        experiment = new FreedomExperiment(prisoners, prisoners / 2, strategy, new SplittableRandom(42));
+    }
+
+    /**
+     * Shuffles once per iteration so {@link #evaluate()} measures the search alone.
+     */
+    @Setup(Level.Iteration)
+    public void shuffleForEvaluation() {
+        experiment.shuffle();
+    }
+
+    @Benchmark
+    public boolean run() {
+        return experiment.run();
+    }
+
+    @Benchmark
+    public boolean runWithStepListener(Blackhole blackhole) {
+        return experiment.run((prisoner, box) -> blackhole.consume(box));
+    }
+
+    @Benchmark
+    public FreedomExperiment shuffle() {
+        experiment.shuffle();
+        return experiment;
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        return experiment.evaluate(Optional.empty());
+    }
+}
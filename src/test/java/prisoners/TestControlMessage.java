@@ -0,0 +1,93 @@
+package prisoners;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import prisoners.ExperimentSession.Mode;
+import prisoners.StepProtocol.Format;
+
+/**
+ * Tests for parsing the control messages WebSocket clients send.
+ */
+public class TestControlMessage {
+
+    @Test
+    public void testStartDefaults() {
+        var start = (ControlMessage.Start) ControlMessage.parse("{\"action\":\"start\"}");
+
+        var request = start.request();
+        Assertions.assertEquals(Format.JSON, request.format());
+        Assertions.assertEquals(Mode.STEPS, request.mode());
+        Assertions.assertEquals(100, request.prisoners());
+        Assertions.assertEquals(1, request.trials());
+        Assertions.assertTrue(request.credits().isEmpty());
+        Assertions.assertFalse(request.timestamps());
+    }
+
+    @Test
+    public void testFieldsInAnyOrderAndUnknownOnesSkipped() {
+        var start = (ControlMessage.Start) ControlMessage.parse(
+            "{\"prisoners\":10,\"extra\":{\"nested\":[1,2]},\"credits\":2,\"mode\":\"replay\",\"action\":\"start\","
+                + "\"format\":\"binary\",\"trials\":3.0,\"timestamps\":true,\"room\":null}");
+
+        var request = start.request();
+        Assertions.assertEquals(Format.BINARY, request.format());
+        Assertions.assertEquals(Mode.REPLAY, request.mode());
+        Assertions.assertEquals(10, request.prisoners());
+        Assertions.assertEquals(3, request.trials());
+        Assertions.assertEquals(2, request.credits().getAsInt());
+        Assertions.assertTrue(request.timestamps());
+    }
+
+    @Test
+    public void testControls() {
+        Assertions.assertEquals(new ControlMessage.Credit(3), ControlMessage.parse("{\"action\":\"credit\",\"count\":3}"));
+        Assertions.assertEquals(new ControlMessage.Speed(Duration.ofMillis(50)),
+            ControlMessage.parse("{\"action\":\"speed\",\"delay\":50}"));
+        Assertions.assertEquals(new ControlMessage.Turbo(false),
+            ControlMessage.parse("{\"action\":\"turbo\",\"enabled\":false}"));
+        Assertions.assertEquals(new ControlMessage.Join("demo", Format.JSON, 100),
+            ControlMessage.parse("{\"action\":\"join\",\"room\":\" demo \"}"));
+        Assertions.assertEquals(new ControlMessage.Stop(), ControlMessage.parse("{\"action\":\"stop\"}"));
+    }
+
+    @Test
+    public void testInvalidMessages() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ControlMessage.parse("not json"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ControlMessage.parse("[1]"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ControlMessage.parse("{\"action\":\"jump\"}"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> ControlMessage.parse("{\"action\":\"start\",\"prisoners\":\"many\"}"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> ControlMessage.parse("{\"action\":\"start\",\"mode\":\"steps\",\"prisoners\":100000}"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> ControlMessage.parse("{\"action\":\"start\",\"credits\":0}"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> ControlMessage.parse("{\"action\":\"start\",\"credits\":-3}"));
+    }
+
+    @Test
+    public void testStatsBudgetBoundary() {
+        // Bounded by box openings: 100 prisoners opening 50 boxes each, 100 million times, is exactly the budget
+        Assertions.assertEquals(ExperimentSession.MAX_STATS_WORK,
+            SimulationConfig.classic(100, 100_000_000).trialCost() * 100_000_000L);
+        Assertions.assertDoesNotThrow(() -> stats(100, 100_000_000));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> stats(100, 100_000_001));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> stats(100_000, 100_000_000));
+
+        // Cheap trials are still capped at what a statistics frame can carry
+        Assertions.assertDoesNotThrow(() -> stats(2, Integer.MAX_VALUE));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> stats(2, Integer.MAX_VALUE + 1L));
+        var request = stats(2, Integer.MAX_VALUE);
+        Assertions.assertDoesNotThrow(() -> new MessageEncoder().stats(request.config(),
+            new TrialCounts(Integer.MAX_VALUE, Integer.MAX_VALUE), true, 1, new long[] {Integer.MAX_VALUE}));
+    }
+
+    private static ExperimentSession.StartRequest stats(int prisoners, long trials) {
+        var start = (ControlMessage.Start) ControlMessage.parse(String.format(
+            "{\"action\":\"start\",\"mode\":\"stats\",\"prisoners\":%d,\"trials\":%d}", prisoners, trials));
+        return start.request();
+    }
+}
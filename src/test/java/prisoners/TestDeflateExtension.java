@@ -0,0 +1,144 @@
+package prisoners;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+import org.eclipse.jetty.util.compression.InflaterPool;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.ExtensionConfig;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
+import org.eclipse.jetty.websocket.common.frames.TextFrame;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for permessage-deflate and its byte counts.
+ */
+public class TestDeflateExtension {
+
+    private static final String STEPS = steps(7, 100);
+
+    /**
+     * Collects what the extension writes, as the connection below it would.
+     */
+    private static final class Wire implements OutgoingFrames {
+
+        final List<Frame> frames = new ArrayList<>();
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+
+        @Override
+        public void outgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode) {
+            frames.add(frame);
+            var bytes = frame.getPayload().slice();
+            while (bytes.hasRemaining()) {
+                payload.write(bytes.get());
+            }
+            if (callback != null) {
+                callback.writeSuccess();
+            }
+        }
+    }
+
+    /**
+     * A step message of {@code count} boxes, each holding the next box's number.
+     */
+    private static String steps(int prisoner, int count) {
+        var boxes = new int[count];
+        var cards = new int[count];
+        for (int i = 0; i < count; i++) {
+            boxes[i] = (prisoner + 37 * i) % count;
+            cards[i] = (prisoner + 37 * (i + 1)) % count;
+        }
+        return new MessageEncoder().stepsJson(prisoner, boxes, cards, count);
+    }
+
+    private static DeflateExtension deflate(Wire wire) {
+        var deflate = new DeflateExtension();
+        deflate.setPolicy(WebSocketPolicy.newServerPolicy());
+        deflate.setBufferPool(new MappedByteBufferPool());
+        // What Jetty's extension factory hands in; the extension keeps its own pool at the configured level
+        deflate.setDeflaterPool(new DeflaterPool(0, Deflater.DEFAULT_COMPRESSION, true));
+        deflate.setInflaterPool(new InflaterPool(0, true));
+        deflate.setConfig(ExtensionConfig.parse("permessage-deflate"));
+        deflate.setNextOutgoingFrames(wire);
+        return deflate;
+    }
+
+    private static String inflate(byte[] compressed) throws DataFormatException {
+        var inflater = new Inflater(true);
+        // RFC 7692 drops the empty block that ends every message; put it back
+        inflater.setInput(ByteBuffer.allocate(compressed.length + 4)
+            .put(compressed).put(new byte[] { 0, 0, (byte) 0xff, (byte) 0xff }).flip());
+        var text = ByteBuffer.allocate(STEPS.length() * 2);
+        inflater.inflate(text);
+        inflater.end();
+        return StandardCharsets.UTF_8.decode(text.flip()).toString();
+    }
+
+    @Test
+    public void testCompressesSteps() throws DataFormatException {
+        var wire = new Wire();
+        var deflate = deflate(wire);
+        deflate.outgoingFrame(new TextFrame().setPayload(STEPS), null, BatchMode.OFF);
+
+        Assertions.assertTrue(wire.frames.get(0).isRsv1());
+        Assertions.assertEquals(STEPS.length(), deflate.payloadBytes());
+        Assertions.assertTrue(deflate.compressionRatio() < 1.0);
+        Assertions.assertEquals(wire.payload.size() / (double) STEPS.length(), deflate.compressionRatio(), 1e-9);
+        Assertions.assertEquals(STEPS, inflate(wire.payload.toByteArray()));
+    }
+
+    @Test
+    public void testSmallMessagesAreSentAsTheyAre() {
+        var small = steps(7, 3);
+        Assertions.assertTrue(small.length() < DeflateExtension.THRESHOLD);
+        var wire = new Wire();
+        var deflate = deflate(wire);
+        deflate.outgoingFrame(new TextFrame().setPayload(small), null, BatchMode.OFF);
+
+        Assertions.assertFalse(wire.frames.get(0).isRsv1());
+        Assertions.assertEquals(small, wire.payload.toString(StandardCharsets.UTF_8));
+        Assertions.assertEquals(1.0, deflate.compressionRatio());
+    }
+
+    @Test
+    public void testBroadcastIsCompressedOnce() throws DataFormatException {
+        var first = new Wire();
+        var second = new Wire();
+        // A room hands every viewer its own frame of the same message, one after the other on one thread
+        deflate(first).outgoingFrame(new TextFrame().setPayload(STEPS), null, BatchMode.OFF);
+        deflate(second).outgoingFrame(new TextFrame().setPayload(STEPS), null, BatchMode.OFF);
+
+        Assertions.assertArrayEquals(first.payload.toByteArray(), second.payload.toByteArray());
+        Assertions.assertEquals(STEPS, inflate(second.payload.toByteArray()));
+        var payload = ByteBuffer.wrap(STEPS.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertSame(DeflateExtension.deflate(payload), DeflateExtension.deflate(payload.duplicate()));
+    }
+
+    @Test
+    public void testRatioBeforeAnythingWasSent() {
+        Assertions.assertEquals(1.0, deflate(new Wire()).compressionRatio());
+    }
+
+    @Test
+    public void testNoContextTakeoverIsNegotiated() {
+        var deflate = deflate(new Wire());
+        var negotiated = deflate.getConfig();
+
+        Assertions.assertEquals(!DeflateExtension.SERVER_CONTEXT_TAKEOVER,
+            negotiated.getParameterKeys().contains("server_no_context_takeover"));
+        Assertions.assertEquals(!DeflateExtension.CLIENT_CONTEXT_TAKEOVER,
+            negotiated.getParameterKeys().contains("client_no_context_takeover"));
+    }
+}
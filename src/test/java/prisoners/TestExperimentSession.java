@@ -0,0 +1,174 @@
+package prisoners;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import prisoners.ExperimentSession.Mode;
+import prisoners.ExperimentSession.StartRequest;
+import prisoners.StepProtocol.Format;
+import prisoners.metrics.DeliveryMetrics;
+
+/**
+ * Tests for playing experiments to one client.
+ */
+public class TestExperimentSession {
+
+    @Test
+    @Timeout(10)
+    public void testStartRightAfterStopIsNotDropped() throws Exception {
+        var sent = new CopyOnWriteArrayList<String>();
+        var session = new ExperimentSession(new ViewerConnection(fakeSession(sent)));
+
+        // Paced at the default step delay, so this one is still sleeping when it is stopped
+        session.startExperiment(new StartRequest(Format.JSON, Mode.STEPS, 10, 1, OptionalInt.empty(), false));
+        session.stopExperiment();
+        session.startExperiment(new StartRequest(Format.JSON, Mode.REPLAY, 10, 1, OptionalInt.empty(), false));
+
+        while (sent.stream().noneMatch(text -> text.startsWith("{\"type\":\"replay\""))) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testStartWhilePlayingIsIgnored() throws Exception {
+        var sent = new CopyOnWriteArrayList<String>();
+        var session = new ExperimentSession(new ViewerConnection(fakeSession(sent)));
+
+        session.startExperiment(new StartRequest(Format.JSON, Mode.STEPS, 10, 1, OptionalInt.empty(), false));
+        session.startExperiment(new StartRequest(Format.JSON, Mode.REPLAY, 10, 1, OptionalInt.empty(), false));
+        Thread.sleep(100);
+        session.stopExperiment();
+
+        Assertions.assertTrue(sent.stream().noneMatch(text -> text.startsWith("{\"type\":\"replay\"")));
+    }
+
+    @Test
+    @Timeout(10)
+    public void testWaitingForStopDoesNotBlockSweeper() throws Exception {
+        var sending = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var session = new ExperimentSession(new ViewerConnection(blockingSession(sending, release)));
+        session.setStepDelay(Duration.ZERO);
+        session.startExperiment(new StartRequest(Format.JSON, Mode.STEPS, 10, 1, OptionalInt.empty(), false));
+        sending.await();
+
+        // The experiment is stuck in a send that ignores the interrupt, so the next start waits for it
+        session.stopExperiment();
+        var failure = new AtomicReference<RuntimeException>();
+        var restart = Thread.ofVirtual().start(() -> {
+            try {
+                session.startExperiment(new StartRequest(Format.JSON, Mode.REPLAY, 10, 1, OptionalInt.empty(), false));
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        Thread.sleep(100);
+
+        long start = System.nanoTime();
+        Assertions.assertFalse(session.isIdle(Duration.ZERO));
+        Assertions.assertTrue(System.nanoTime() - start < ExperimentSession.STOP_TIMEOUT.toNanos() / 2);
+        restart.join();
+        release.countDown();
+        Assertions.assertInstanceOf(IllegalStateException.class, failure.get());
+    }
+
+    @Test
+    @Timeout(10)
+    public void testStepLatencyIsRecordedWhenWritten() throws Exception {
+        var sent = new CopyOnWriteArrayList<String>();
+        var unwritten = new CopyOnWriteArrayList<WriteCallback>();
+        var session = new ExperimentSession(new ViewerConnection(fakeSession(sent, unwritten)));
+        var latency = DeliveryMetrics.get().stepLatency();
+
+        session.setStepDelay(Duration.ZERO);
+        session.startExperiment(new StartRequest(Format.JSON, Mode.STEPS, 4, 1, OptionalInt.empty(), false));
+        while (sent.stream().noneMatch(text -> text.startsWith("{\"type\":\"result\""))) {
+            Thread.sleep(10);
+        }
+        long steps = sent.stream().filter(text -> text.startsWith("{\"type\":\"steps\"")).count();
+        long before = latency.count();
+        long sumBefore = latency.sum();
+
+        Thread.sleep(5);
+        unwritten.forEach(WriteCallback::writeSuccess);
+
+        Assertions.assertEquals(before + steps, latency.count());
+        // Every batch waited at least the 5 ms before its write completed
+        Assertions.assertTrue(latency.sum() - sumBefore >= steps * 5_000_000);
+    }
+
+    /**
+     * A connection whose first send blocks, ignoring interrupts, until {@code release} is counted down.
+     */
+    private static Session blockingSession(CountDownLatch sending, CountDownLatch release) {
+        var remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+            new Class<?>[] {RemoteEndpoint.class}, (proxy, method, args) -> {
+                if (method.getName().equals("sendString") && args.length == 2) {
+                    sending.countDown();
+                    boolean interrupted = false;
+                    while (release.getCount() > 0) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    ((WriteCallback) args[1]).writeSuccess();
+                }
+                return null;
+            });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] {Session.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getRemote" -> remote;
+                case "isOpen" -> true;
+                default -> null;
+            });
+    }
+
+    /**
+     * A connection that writes every text message at once into {@code sent}.
+     */
+    private static Session fakeSession(List<String> sent) {
+        return fakeSession(sent, null);
+    }
+
+    /**
+     * A connection that queues every text message into {@code sent} and, if {@code unwritten} is given, leaves
+     * the write callbacks there instead of completing them.
+     */
+    private static Session fakeSession(List<String> sent, List<WriteCallback> unwritten) {
+        var remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+            new Class<?>[] {RemoteEndpoint.class}, (proxy, method, args) -> {
+                if (method.getName().equals("sendString") && args.length == 2) {
+                    sent.add((String) args[0]);
+                    if (unwritten != null) {
+                        unwritten.add((WriteCallback) args[1]);
+                    } else {
+                        ((WriteCallback) args[1]).writeSuccess();
+                    }
+                }
+                return null;
+            });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] {Session.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getRemote" -> remote;
+                case "isOpen" -> true;
+                default -> null;
+            });
+    }
+}
@@ -0,0 +1,115 @@
+package prisoners;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the LRU result cache.
+ */
+public class TestResultCache {
+
+    private static SimulationResult result(int prisoners, long seed, long successes) {
+        return new SimulationResult(SimulationConfig.classic(prisoners, 100).withSeed(seed), successes);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        var cache = new ResultCache(2);
+        var first = result(10, 1, 30);
+        var second = result(10, 2, 31);
+        var third = result(10, 3, 32);
+
+        cache.put(first);
+        cache.put(second);
+        cache.get(first.config()); // touch, so "second" becomes the eldest
+        cache.put(third);
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertTrue(cache.get(first.config()).isPresent());
+        Assertions.assertTrue(cache.get(second.config()).isEmpty());
+        Assertions.assertTrue(cache.get(third.config()).isPresent());
+    }
+
+    @Test
+    public void testUnseededResultsAreNotCached() {
+        var cache = new ResultCache(4);
+        var config = SimulationConfig.classic(10, 100);
+        cache.put(new SimulationResult(config, 40));
+
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertTrue(cache.get(config).isEmpty());
+    }
+
+    @Test
+    public void testComputeIfAbsentSimulatesOnce() {
+        var cache = new ResultCache(4);
+        var config = SimulationConfig.classic(20, 500).withSeed(7);
+        var runs = new int[1];
+
+        var first = cache.computeIfAbsent(config, c -> {
+            runs[0]++;
+            return new SimulationRunner().run(c);
+        });
+        var second = cache.computeIfAbsent(config, c -> {
+            runs[0]++;
+            return new SimulationRunner().run(c);
+        });
+
+        Assertions.assertEquals(1, runs[0]);
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(1, cache.hits());
+        Assertions.assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testDiskBackedEntriesSurviveNewInstance(@TempDir Path dir) {
+        var stored = result(100, 42, 31);
+        new ResultCache(4, dir).put(stored);
+
+        var reloaded = new ResultCache(4, dir).get(stored.config());
+        Assertions.assertEquals(stored, reloaded.orElseThrow());
+    }
+
+    @Test
+    public void testDirectoryIsBoundedAcrossInstances(@TempDir Path dir) throws Exception {
+        var earlier = new ResultCache(4, dir);
+        for (long seed = 1; seed <= 4; seed++) {
+            earlier.put(result(10, seed, 30));
+        }
+        Assertions.assertEquals(4, resultFiles(dir));
+
+        // A smaller cache over the same directory trims what the earlier one left, then keeps its own bound
+        var later = new ResultCache(2, dir);
+        Assertions.assertEquals(2, resultFiles(dir));
+        later.put(result(10, 5, 30));
+        later.put(result(10, 6, 30));
+        later.put(result(10, 7, 30));
+        Assertions.assertEquals(2, resultFiles(dir));
+        Assertions.assertTrue(new ResultCache(2, dir).get(result(10, 7, 30).config()).isPresent());
+    }
+
+    @Test
+    public void testMemoryHitKeepsFileHot(@TempDir Path dir) {
+        var cache = new ResultCache(2, dir);
+        var hot = result(10, 1, 30);
+        cache.put(hot);
+        cache.put(result(10, 2, 30));
+
+        // Served from memory, but the file is used as much as the entry
+        Assertions.assertTrue(cache.get(hot.config()).isPresent());
+        cache.put(result(10, 3, 30));
+
+        Assertions.assertTrue(new ResultCache(2, dir).get(hot.config()).isPresent());
+        Assertions.assertTrue(new ResultCache(2, dir).get(result(10, 2, 30).config()).isEmpty());
+    }
+
+    private static long resultFiles(Path dir) throws Exception {
+        try (var files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".properties")).count();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package prisoners;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests for the Flight Recorder events emitted by the simulation engine.
+ */
+public class TestSimulationEvents {
+
+    @Test
+    public void testSampledTrialIsRecorded(@TempDir Path dir) throws Exception {
+        var experiment = new FreedomExperiment(100, 50, Strategy.CHAIN_FOLLOWING, new SplittableRandom(9));
+        var file = dir.resolve("trial.jfr");
+
+        try (var recording = new Recording()) {
+            recording.enable("prisoners.Trial");
+            recording.enable("prisoners.Shuffle");
+            recording.start();
+            for (int i = 0; i < SimulationEvents.SAMPLE_EVERY; i++) {
+                experiment.run();
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var trials = events(file, "prisoners.Trial");
+        Assertions.assertEquals(1, trials.size());
+        var trial = trials.get(0);
+        Assertions.assertEquals(100, trial.getInt("prisoners"));
+        // Following the chains, everyone escapes exactly when no cycle is longer than the 50 boxes they may open
+        Assertions.assertEquals(trial.getInt("longestCycle") <= 50, trial.getBoolean("success"));
+        Assertions.assertEquals(1, events(file, "prisoners.Shuffle").size());
+    }
+
+    @Test
+    public void testSamplingIsSharedByInstances(@TempDir Path dir) throws Exception {
+        var config = SimulationConfig.classic(10, 1).withSeed(3);
+        var file = dir.resolve("sampling.jfr");
+
+        try (var recording = new Recording()) {
+            recording.enable("prisoners.Trial");
+            recording.enable("prisoners.Simulation");
+            recording.start();
+            // A new experiment and runner per call, as job chunks, work units and web sessions create them
+            for (int i = 0; i < 3 * SimulationEvents.SAMPLE_EVERY; i++) {
+                new SimulationRunner().runTrials(config, 3, 0, 1, TrialObserver.NONE);
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Assertions.assertEquals(3, events(file, "prisoners.Trial").size());
+        Assertions.assertEquals(3, events(file, "prisoners.Simulation").size());
+    }
+
+    @Test
+    public void testPacingIsNotAStall(@TempDir Path dir) throws Exception {
+        var experiment = new FreedomExperiment(2, 1, Strategy.CHAIN_FOLLOWING, new SplittableRandom(9));
+        var file = dir.resolve("stalls.jfr");
+
+        try (var recording = new Recording()) {
+            recording.enable("prisoners.ListenerStall").withThreshold(java.time.Duration.ofMillis(10));
+            recording.start();
+            skipToSampledTrial(experiment);
+            experiment.run(new StepListener() {
+                @Override
+                public void onStep(Prisoner p, Box b) {
+                }
+
+                @Override
+                public void pace() {
+                    sleep(20);
+                }
+            });
+            recording.stop();
+            recording.dump(file);
+        }
+        // The sampled run's listener only waited in pace()
+        Assertions.assertEquals(0, events(file, "prisoners.ListenerStall").size());
+
+        try (var recording = new Recording()) {
+            recording.enable("prisoners.ListenerStall").withThreshold(java.time.Duration.ofMillis(10));
+            recording.start();
+            skipToSampledTrial(experiment);
+            experiment.run((p, b) -> sleep(20));
+            recording.stop();
+            recording.dump(file);
+        }
+        Assertions.assertFalse(events(file, "prisoners.ListenerStall").isEmpty());
+    }
+
+    /**
+     * Runs unobserved trials until the next one is sampled; Flight Recorder must be running.
+     */
+    private static void skipToSampledTrial(FreedomExperiment experiment) {
+        while (!SimulationEvents.nextTrialIsSampled()) {
+            experiment.run();
+        }
+    }
+
+    private static List<RecordedEvent> events(Path file, String type) throws Exception {
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals(type))
+                .toList();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
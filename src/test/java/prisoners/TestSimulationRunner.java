@@ -0,0 +1,77 @@
+package prisoners;
+
+import java.util.OptionalLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for seeded simulation runs and exact success probabilities.
+ */
+public class TestSimulationRunner {
+
+    @Test
+    public void testSeededRunsAreReproducible() {
+        var config = SimulationConfig.classic(100, 2_000).withSeed(2024);
+        var runner = new SimulationRunner();
+
+        Assertions.assertEquals(runner.run(config), runner.run(config));
+    }
+
+    @Test
+    public void testExactProbabilityForHundredPrisoners() {
+        // 1 - (1/51 + 1/52 + ... + 1/100)
+        var expected = 1.0;
+        for (int k = 51; k <= 100; k++) {
+            expected -= 1.0 / k;
+        }
+        Assertions.assertEquals(expected, SimulationConfig.classic(100, 1).exactSuccessProbability(), 1e-12);
+    }
+
+    @Test
+    public void testChainStrategyMatchesExactProbability() {
+        var config = SimulationConfig.classic(20, 20_000).withSeed(1);
+        var result = new SimulationRunner().run(config);
+
+        Assertions.assertEquals(config.exactSuccessProbability() * 100.0, result.successRate(), 1.5);
+    }
+
+    @Test
+    public void testRandomStrategyRarelySucceeds() {
+        var config = new SimulationConfig(10, 5, Strategy.RANDOM, OptionalLong.of(3), 20_000);
+        var result = new SimulationRunner().run(config);
+
+        // (1/2)^10 ≈ 0.1%
+        Assertions.assertEquals(config.exactSuccessProbability() * 100.0, result.successRate(), 0.15);
+    }
+
+    @Test
+    public void testInvalidLimit() {
+        var exception = Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new SimulationConfig(10, 11, Strategy.CHAIN_FOLLOWING, OptionalLong.empty(), 1);
+        });
+        Assertions.assertTrue(exception.getMessage().contains("between 1 and 10"));
+    }
+
+    @Test
+    public void testObserverStopsRunBetweenTrials() {
+        var config = SimulationConfig.classic(100, 1_000).withSeed(7);
+        var observer = new TrialObserver() {
+            int finished;
+
+            @Override
+            public void trialFinished(FreedomExperiment experiment, boolean success) {
+                finished++;
+            }
+
+            @Override
+            public boolean isStopRequested() {
+                return finished == 5;
+            }
+        };
+
+        var counts = new SimulationRunner().runTrials(config, 7, 0, config.trials(), observer);
+
+        Assertions.assertEquals(5, counts.trials());
+    }
+}
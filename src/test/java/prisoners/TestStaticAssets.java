@@ -0,0 +1,74 @@
+package prisoners;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the in-memory web page files.
+ */
+public class TestStaticAssets {
+
+    @Test
+    public void testLoadsPageFromClasspath() throws IOException {
+        var assets = StaticAssets.load();
+        var index = assets.get("/index.html").orElseThrow();
+
+        Assertions.assertSame(index, assets.get("/").orElseThrow());
+        Assertions.assertEquals("text/html; charset=utf-8", index.contentType());
+        Assertions.assertEquals("no-cache", index.cacheControl());
+        Assertions.assertTrue(assets.get("/script.js").isPresent());
+        Assertions.assertTrue(assets.get("/styles.css").isPresent());
+        Assertions.assertEquals("image/svg+xml", assets.get("/icons/prisoner.svg").orElseThrow().contentType());
+        Assertions.assertTrue(assets.get("/public/index.html").isEmpty());
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(index.gzipped()))) {
+            Assertions.assertArrayEquals(index.bytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testEtagsFollowContent() {
+        var first = StaticAssets.asset("/script.js", "let boxes = [];\n".repeat(20).getBytes());
+        var same = StaticAssets.asset("/script.js", "let boxes = [];\n".repeat(20).getBytes());
+        var changed = StaticAssets.asset("/script.js", "let boxes = [0];\n".repeat(20).getBytes());
+
+        Assertions.assertEquals(first.etag(), same.etag());
+        Assertions.assertNotEquals(first.etag(), changed.etag());
+        Assertions.assertNotEquals(first.etag(), first.gzipEtag());
+        Assertions.assertTrue(first.etag().startsWith("\"") && first.etag().endsWith("\""));
+        Assertions.assertTrue(first.gzipEtag().startsWith("\"") && first.gzipEtag().endsWith("\""));
+        Assertions.assertEquals("public, max-age=" + StaticAssets.MAX_AGE_SECONDS, first.cacheControl());
+    }
+
+    @Test
+    public void testIncompressibleFilesAreKeptOnlyAsTheyAre() {
+        var asset = StaticAssets.asset("/styles.css", "a{}".getBytes());
+
+        Assertions.assertNull(asset.gzipped());
+        Assertions.assertNull(asset.gzipEtag());
+    }
+
+    @Test
+    public void testNotModified() {
+        var etag = "\"abc\"";
+        Assertions.assertTrue(StaticAssets.Asset.notModified(etag, etag));
+        Assertions.assertTrue(StaticAssets.Asset.notModified("\"xyz\", \"abc\"", etag));
+        Assertions.assertTrue(StaticAssets.Asset.notModified("*", etag));
+        Assertions.assertFalse(StaticAssets.Asset.notModified(null, etag));
+        Assertions.assertFalse(StaticAssets.Asset.notModified("\"abc-gzip\"", etag));
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        Assertions.assertTrue(StaticAssets.acceptsGzip("gzip, deflate, br"));
+        Assertions.assertTrue(StaticAssets.acceptsGzip("br;q=1.0, GZIP;q=0.8"));
+        Assertions.assertTrue(StaticAssets.acceptsGzip("*"));
+        Assertions.assertFalse(StaticAssets.acceptsGzip("gzip;q=0"));
+        Assertions.assertFalse(StaticAssets.acceptsGzip("identity"));
+        Assertions.assertFalse(StaticAssets.acceptsGzip(null));
+    }
+}
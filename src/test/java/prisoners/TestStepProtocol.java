@@ -0,0 +1,146 @@
+package prisoners;
+
+import java.nio.ByteOrder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParser;
+
+/**
+ * Tests for the batched step wire format.
+ */
+public class TestStepProtocol {
+
+    @Test
+    public void testBinaryStepsAreLittleEndianInts() {
+        var frame = new MessageEncoder().steps(7, new int[] { 7, 42, 0 }, new int[] { 42, 7, 0 }, 2);
+
+        Assertions.assertEquals(7 * Integer.BYTES, frame.remaining());
+        var ints = frame.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        var decoded = new int[ints.remaining()];
+        ints.get(decoded);
+        Assertions.assertArrayEquals(new int[] { StepProtocol.STEPS, 7, 2, 7, 42, 42, 7 }, decoded);
+    }
+
+    @Test
+    public void testBinarySummary() {
+        var frame = new MessageEncoder().summary(new int[] { 1, 2 }, new int[] { 12, 50 }, new boolean[] { true, false }, 2);
+
+        var ints = frame.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        var decoded = new int[ints.remaining()];
+        ints.get(decoded);
+        Assertions.assertArrayEquals(new int[] { StepProtocol.SUMMARY, 2, 1, 12, 1, 2, 50, 0 }, decoded);
+    }
+
+    @Test
+    public void testBinaryStats() {
+        var histogram = new CycleHistogram(10, 4);
+        histogram.record(3);
+        histogram.record(10);
+        var frame = new MessageEncoder().stats(SimulationConfig.classic(10, 5), new TrialCounts(2, 1), false,
+            histogram.binWidth(), histogram.snapshot());
+
+        var ints = frame.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        var decoded = new int[ints.remaining()];
+        ints.get(decoded);
+        Assertions.assertArrayEquals(new int[] { StepProtocol.STATS, 0, 5, 2, 1, 5, 3, 4, 1, 0, 0, 1 }, decoded);
+    }
+
+    @Test
+    public void testBinaryReplay() {
+        var frame = new MessageEncoder().replay(false, 2, new int[] { 3, 1, 4, 2 });
+
+        var ints = frame.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        var decoded = new int[ints.remaining()];
+        ints.get(decoded);
+        Assertions.assertArrayEquals(new int[] { StepProtocol.REPLAY, 0, 2, 4, 3, 1, 4, 2 }, decoded);
+    }
+
+    @Test
+    public void testReplayedChainsMatchTheTrial() {
+        var experiment = new FreedomExperiment(20);
+        for (int trial = 0; trial < 50; trial++) {
+            boolean success = experiment.run();
+            var hiddenNumbers = new int[20];
+            for (int box = 1; box <= 20; box++) {
+                hiddenNumbers[box - 1] = experiment.getBox(box).hiddenNumber();
+            }
+
+            // What the client does with a replay: follow every prisoner's chain for at most `limit` boxes
+            boolean replayed = true;
+            for (int prisoner = 1; prisoner <= 20 && replayed; prisoner++) {
+                int box = prisoner;
+                replayed = false;
+                for (int opened = 0; opened < 10 && !replayed; opened++) {
+                    replayed = hiddenNumbers[box - 1] == prisoner;
+                    box = hiddenNumbers[box - 1];
+                }
+            }
+            Assertions.assertEquals(success, replayed);
+        }
+    }
+
+    @Test
+    public void testJsonFallbackCarriesSameSteps() {
+        var json = JsonParser.parseString(
+            new MessageEncoder().stepsJson(7, new int[] { 7, 42 }, new int[] { 42, 7 }, 2)).getAsJsonObject();
+
+        Assertions.assertEquals("steps", json.get("type").getAsString());
+        Assertions.assertEquals(7, json.get("prisonerNumber").getAsInt());
+        Assertions.assertEquals("[[7,42],[42,7]]", json.get("steps").toString());
+    }
+
+    @Test
+    public void testEncoderReusesItsBuffer() {
+        var encoder = new MessageEncoder();
+        var first = encoder.steps(1, new int[] { 1 }, new int[] { 1 }, 1);
+        var second = encoder.result(true);
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(2 * Integer.BYTES, second.remaining());
+        Assertions.assertEquals(StepProtocol.RESULT, second.order(ByteOrder.LITTLE_ENDIAN).getInt(0));
+    }
+
+    @Test
+    public void testTimestampedFramesEndWithSendTime() {
+        long before = StepProtocol.epochMicros();
+        var frame = new MessageEncoder(true).result(true).order(ByteOrder.LITTLE_ENDIAN);
+
+        Assertions.assertEquals(2 * Integer.BYTES + Long.BYTES, frame.remaining());
+        long sent = frame.getLong(2 * Integer.BYTES);
+        Assertions.assertTrue(sent >= before && sent <= StepProtocol.epochMicros());
+    }
+
+    @Test
+    public void testJsonStatsAreValidJson() {
+        var json = JsonParser.parseString(new MessageEncoder().statsJson(SimulationConfig.classic(10, 5),
+            new TrialCounts(2, 1), true, 3, new long[] { 1, 0, 0, 1 })).getAsJsonObject();
+
+        Assertions.assertEquals("stats", json.get("type").getAsString());
+        Assertions.assertTrue(json.get("done").getAsBoolean());
+        Assertions.assertEquals(50.0, json.get("successRate").getAsDouble());
+        Assertions.assertEquals("[1,0,0,1]", json.get("histogram").toString());
+    }
+
+    @Test
+    public void testErrorMessagesAreEscaped() {
+        var json = JsonParser.parseString(StepProtocol.errorJson("Bad \"room\"\n\\ \u0001")).getAsJsonObject();
+
+        Assertions.assertEquals("Bad \"room\"\n\\ \u0001", json.get("message").getAsString());
+    }
+
+    @Test
+    public void testUtf8Length() {
+        for (var text : new String[] {"", "{\"type\":\"steps\"}", "Prisoner \u00e9\u00df", "Room \u2603",
+            "Emoji \ud83d\ude00"}) {
+            Assertions.assertEquals(text.getBytes(java.nio.charset.StandardCharsets.UTF_8).length,
+                StepProtocol.utf8Length(text));
+        }
+    }
+
+    @Test
+    public void testUnknownFormat() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> StepProtocol.Format.parse("xml"));
+    }
+}
@@ -97,4 +97,13 @@ public class TextFreedomExperiment {
         var stats = experiment.getStats();
         Assertions.assertEquals(result, stats.allEscaped());
     }
+
+    @Test
+    public void testChainSuccessMatchesLongestCycle() {
+        var experiment = new FreedomExperiment(20);
+        for (int i = 0; i < 50; i++) {
+            var result = experiment.run();
+            Assertions.assertEquals(experiment.longestCycle() <= 10, result);
+        }
+    }
 }
@@ -0,0 +1,250 @@
+package prisoners;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import prisoners.metrics.LatencyHistogram;
+
+/**
+ * Load generator for {@link FreedomExperimentWebSocketServer}: opens many {@code org.java_websocket} clients,
+ * drives each through a start/stop script and reports connection rate, message rate and the delay from the
+ * server sending a frame to the client receiving it.
+ *
+ * <p>
+ * Run with {@code ./mvnw test-compile exec:exec@loadtest}; pass options through {@code -Dloadtest.args}, e.g.
+ * {@code -Dloadtest.args="--clients 5000 --mode replay"}. Without {@code --url} a server is started in this JVM
+ * on a free port. Latency relies on the timestamps the server appends to binary frames, so against a remote
+ * server both clocks must be synchronized. Every client uses two platform threads, so very large runs need
+ * a raised thread and file descriptor limit.
+ */
+@Command(
+    name = "websocket-load",
+    mixinStandardHelpOptions = true,
+    description = "Opens many WebSocket viewers against the experiment server and reports throughput and latency.",
+    sortOptions = false
+)
+public final class WebSocketLoadGenerator implements Callable<Integer> {
+
+    @Option(names = "--url", description = "Server to load (default: start one in this JVM).", paramLabel = "URI")
+    private URI url;
+
+    @Option(names = {"-c", "--clients"}, description = "Concurrent viewers.", defaultValue = "1000")
+    private int clients;
+
+    @Option(names = "--connect-rate", description = "New connections per second while ramping up.",
+        defaultValue = "500")
+    private int connectRate;
+
+    @Option(names = {"-d", "--duration"}, description = "Seconds to measure once every viewer is connected.",
+        defaultValue = "30")
+    private int durationSeconds;
+
+    @Option(names = "--mode", description = "Experiment mode: steps, replay or stats.", defaultValue = "steps")
+    private String mode;
+
+    @Option(names = {"-p", "--prisoners"}, description = "Prisoners per experiment.", defaultValue = "100")
+    private int prisoners;
+
+    @Option(names = {"-t", "--trials"}, description = "Trials per experiment.", defaultValue = "100")
+    private long trials;
+
+    @Option(names = "--step-delay", description = "Step delay in milliseconds requested by every viewer.",
+        defaultValue = "0")
+    private int stepDelay;
+
+    @Option(names = "--credits", description = "Messages in flight per viewer (credit-based flow control).",
+        defaultValue = "4")
+    private int credits;
+
+    @Option(names = "--restart-every", description = "Seconds after which each viewer stops and starts again.",
+        defaultValue = "5")
+    private int restartSeconds;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new WebSocketLoadGenerator()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        ExperimentSession.Mode.parse(mode);
+        FreedomExperimentWebSocketServer server = null;
+        var target = url;
+        if (target == null) {
+            int port = freePort();
+            server = FreedomExperimentWebSocketServer.start(port);
+            target = URI.create("ws://localhost:" + port + FreedomExperimentWebSocketServer.WEBSOCKET_PATH);
+        }
+
+        var viewers = new ArrayList<Viewer>(clients);
+        var opened = new CountDownLatch(clients);
+        long rampStart = System.nanoTime();
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, connectRate);
+        for (int i = 0; i < clients; i++) {
+            var viewer = new Viewer(target, opened);
+            viewers.add(viewer);
+            viewer.connect();
+            long next = rampStart + (i + 1) * interval;
+            TimeUnit.NANOSECONDS.sleep(next - System.nanoTime());
+        }
+        boolean allOpen = opened.await(60, TimeUnit.SECONDS);
+        double rampSeconds = (System.nanoTime() - rampStart) / 1e9;
+        long connected = clients - opened.getCount();
+        System.out.printf("Connected %d of %d viewers in %.1f s (%.0f connections/s)%n",
+            connected, clients, rampSeconds, connected / rampSeconds);
+        if (!allOpen) {
+            System.out.println("Some viewers never connected; measuring the ones that did");
+        }
+
+        // Experiments start once everyone is connected, so they do not slow down the ramp-up being measured
+        for (var viewer : viewers) {
+            viewer.start();
+        }
+
+        // Start/stop script: every viewer restarts its experiment periodically, staggered over the period
+        var script = Executors.newSingleThreadScheduledExecutor();
+        long period = TimeUnit.SECONDS.toMillis(restartSeconds);
+        for (int i = 0; i < viewers.size(); i++) {
+            var viewer = viewers.get(i);
+            long offset = period * i / viewers.size();
+            script.scheduleAtFixedRate(viewer::stop, offset + period, period, TimeUnit.MILLISECONDS);
+            // A stopped experiment needs a moment to unwind before a new start is accepted
+            script.scheduleAtFixedRate(viewer::start, offset + period + period / 10, period, TimeUnit.MILLISECONDS);
+        }
+
+        latency.reset();
+        long messagesBefore = messages.sum();
+        long bytesBefore = bytes.sum();
+        long measureStart = System.nanoTime();
+        Thread.sleep(Duration.ofSeconds(durationSeconds));
+        double measured = (System.nanoTime() - measureStart) / 1e9;
+        long received = messages.sum() - messagesBefore;
+        long receivedBytes = bytes.sum() - bytesBefore;
+        System.out.printf("Received %d messages in %.1f s: %.0f messages/s, %.1f MB/s%n",
+            received, measured, received / measured, receivedBytes / measured / 1e6);
+        System.out.printf("Emit to receive: p50 %s, p99 %s, p999 %s (%d samples)%n",
+            millis(latency.quantile(0.5)), millis(latency.quantile(0.99)), millis(latency.quantile(0.999)),
+            latency.count());
+        System.out.printf("Errors: %d, connections lost: %d%n", errors.sum(), dropped.sum());
+        boolean clean = allOpen && errors.sum() == 0 && dropped.sum() == 0;
+
+        script.shutdownNow();
+        for (var viewer : viewers) {
+            viewer.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+        return clean ? 0 : 1;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f ms", nanos / 1e6);
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * One simulated browser: starts an experiment with timestamps, grants a credit per message it receives and
+     * records how long each binary frame took to arrive.
+     */
+    private final class Viewer extends WebSocketClient {
+
+        private final CountDownLatch opened;
+        private volatile boolean closing;
+
+        Viewer(URI uri, CountDownLatch opened) {
+            super(uri);
+            this.opened = opened;
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+            send(String.format("{\"action\":\"speed\",\"delay\":%d}", stepDelay));
+            opened.countDown();
+        }
+
+        void start() {
+            if (isOpen() && !closing) {
+                send(String.format(
+                    "{\"action\":\"start\",\"format\":\"binary\",\"mode\":\"%s\",\"prisoners\":%d,\"trials\":%d,"
+                        + "\"credits\":%d,\"timestamps\":true}",
+                    mode, prisoners, trials, credits));
+            }
+        }
+
+        void stop() {
+            if (isOpen() && !closing) {
+                send("{\"action\":\"stop\"}");
+            }
+        }
+
+        @Override
+        public void onMessage(ByteBuffer frame) {
+            long received = StepProtocol.epochMicros();
+            messages.increment();
+            bytes.add(frame.remaining());
+            if (frame.remaining() >= 2 * Integer.BYTES + Long.BYTES) {
+                long sent = frame.order(ByteOrder.LITTLE_ENDIAN).getLong(frame.limit() - Long.BYTES);
+                latency.record(TimeUnit.MICROSECONDS.toNanos(received - sent));
+            }
+            if (!closing) {
+                send("{\"action\":\"credit\",\"count\":1}");
+            }
+        }
+
+        @Override
+        public void onMessage(String message) {
+            messages.increment();
+            bytes.add(message.length());
+            if (message.contains("\"error\"")) {
+                errors.increment();
+            }
+        }
+
+        @Override
+        public void close() {
+            closing = true;
+            super.close();
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            if (!closing) {
+                dropped.increment();
+            }
+        }
+
+        @Override
+        public void onError(Exception e) {
+            if (!closing) {
+                errors.increment();
+            }
+        }
+    }
+}
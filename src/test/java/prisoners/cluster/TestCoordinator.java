@@ -0,0 +1,66 @@
+package prisoners.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import prisoners.SimulationConfig;
+import prisoners.SimulationRunner;
+
+/**
+ * Tests for distributed runs over localhost.
+ */
+@Timeout(60)
+public class TestCoordinator {
+
+    private static final SimulationConfig CONFIG = SimulationConfig.classic(50, 5_000).withSeed(77);
+
+    @Test
+    public void testDistributedRunMatchesSingleProcess() throws Exception {
+        var expected = new SimulationRunner().run(CONFIG);
+
+        try (var serverSocket = new ServerSocket(0); var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            var address = "localhost:" + serverSocket.getLocalPort();
+            var result = pool.submit(() -> new Coordinator(CONFIG, 333).run(serverSocket, trials -> {}));
+            var workers = pool.submit(() -> new Worker(address, 3, 5, 50).call());
+
+            Assertions.assertEquals(expected, result.get(30, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, workers.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testUnitFromFailedWorkerIsRetried() throws Exception {
+        var expected = new SimulationRunner().run(CONFIG);
+
+        try (var serverSocket = new ServerSocket(0); var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            var target = new InetSocketAddress("localhost", serverSocket.getLocalPort());
+            var result = pool.submit(() -> new Coordinator(CONFIG, 1_000).run(serverSocket, trials -> {}));
+
+            // A worker that takes a unit and dies before answering
+            try (var socket = new Socket()) {
+                socket.connect(target);
+                var out = new DataOutputStream(socket.getOutputStream());
+                ClusterProtocol.writeHello(out);
+                var in = new DataInputStream(socket.getInputStream());
+                Assertions.assertEquals(ClusterProtocol.WORK, in.readByte());
+            }
+
+            Assertions.assertTrue(new Worker(target.getHostString() + ":" + target.getPort(), 1, 5, 50).work(target));
+            Assertions.assertEquals(expected, result.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testInvalidAddress() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Worker.parseAddress("no-port"));
+    }
+}
@@ -0,0 +1,99 @@
+package prisoners.gui;
+
+import javax.swing.*;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the shared frame clock, driven frame by frame instead of by its timer.
+ */
+public class TestAnimationClock {
+
+    @Test
+    public void testAnimationsRunUntilTheyFinish() {
+        var clock = new AnimationClock();
+        int[] frames = {0, 0};
+        AnimationClock.Animation short1 = now -> ++frames[0] < 2;
+        AnimationClock.Animation long1 = now -> ++frames[1] < 5;
+        clock.start(short1);
+        clock.start(long1);
+        clock.start(short1); // already running: not ticked twice per frame
+
+        for (int i = 0; i < 10; i++) {
+            clock.tick(i);
+        }
+
+        Assertions.assertEquals(2, frames[0]);
+        Assertions.assertEquals(5, frames[1]);
+        Assertions.assertEquals(0, clock.runningAnimations());
+    }
+
+    @Test
+    public void testAnimationsMayStartAndStopOthers() {
+        var clock = new AnimationClock();
+        int[] frames = {0};
+        AnimationClock.Animation counter = now -> ++frames[0] > 0;
+        AnimationClock.Animation starter = now -> {
+            clock.start(counter);
+            return false;
+        };
+        clock.start(starter);
+
+        clock.tick(1);
+        Assertions.assertTrue(clock.isRunning(counter));
+        Assertions.assertFalse(clock.isRunning(starter));
+
+        clock.tick(2);
+        clock.stop(counter);
+        clock.tick(3);
+        Assertions.assertEquals(1, frames[0]);
+        Assertions.assertEquals(0, clock.runningAnimations());
+    }
+
+    @Test
+    public void testBoxAnimationsShareTheClock() throws Exception {
+        // The shared clock belongs to the event dispatch thread
+        SwingUtilities.invokeAndWait(() -> {
+            var grid = new BoxGridPanel(4);
+            int before = AnimationClock.shared().runningAnimations();
+            grid.setCurrentlyOpened(0, true);
+            Assertions.assertEquals(before + 1, AnimationClock.shared().runningAnimations());
+
+            grid.setFoundTarget(0, true); // the bounce replaces the fade
+            grid.setCurrentlyOpened(1, true); // one animation plays every box of the grid
+            Assertions.assertEquals(before + 1, AnimationClock.shared().runningAnimations());
+
+            grid.reset();
+            Assertions.assertEquals(before, AnimationClock.shared().runningAnimations());
+        });
+    }
+
+    @Test
+    public void testProgressBarEasesByElapsedTime() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            var smooth = new ModernProgressBar();
+            var choppy = new ModernProgressBar();
+            smooth.setValue(100);
+            choppy.setValue(100);
+            long start = System.nanoTime();
+            smooth.animationFrame(start);
+            choppy.animationFrame(start);
+            float smoothRemaining = 100 - smooth.animatedValue();
+            float choppyRemaining = 100 - choppy.animatedValue();
+
+            // The same 160 ms at 60 and at 20 frames per second
+            for (int frame = 1; frame <= 10; frame++) {
+                smooth.animationFrame(start + frame * 16_000_000L);
+            }
+            for (int frame = 1; frame <= 3; frame++) {
+                choppy.animationFrame(start + frame * 53_333_333L);
+            }
+
+            float smoothLeft = (100 - smooth.animatedValue()) / smoothRemaining;
+            float choppyLeft = (100 - choppy.animatedValue()) / choppyRemaining;
+            Assertions.assertEquals(smoothLeft, choppyLeft, 0.01f);
+            Assertions.assertTrue(smoothLeft > 0.2f && smoothLeft < 0.5f);
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package prisoners.gui;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import javax.swing.*;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the single-component box grid.
+ */
+public class TestBoxGridPanel {
+
+    @Test
+    public void testHitTestingMatchesBoxBounds() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            var grid = new BoxGridPanel(10_000);
+            grid.setSize(grid.getPreferredSize());
+
+            for (int index : new int[] {0, 99, 150, 9_999}) {
+                var bounds = grid.boxBounds(index);
+                Assertions.assertEquals(index, grid.boxAt(bounds.x + 1, bounds.y + 1));
+                Assertions.assertEquals(index, grid.boxAt(bounds.x + bounds.width - 1, bounds.y + bounds.height - 1));
+            }
+            Assertions.assertEquals(-1, grid.boxAt(0, 0));
+            Assertions.assertEquals(-1, grid.boxAt(grid.getWidth() - 1, grid.getHeight() - 1));
+        });
+    }
+
+    @Test
+    public void testClearPathKeepsFoundBoxes() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            var grid = new BoxGridPanel(100);
+            grid.setHiddenNumber(4, 10);
+            grid.setCurrentlyOpened(4, true);
+            grid.setInPath(4, true);
+            grid.setHiddenNumber(9, 1);
+            grid.setCurrentlyOpened(9, true);
+            grid.setFoundTarget(9, true);
+
+            grid.clearPath();
+
+            Assertions.assertEquals(BoxGridPanel.VisualState.NORMAL, grid.getState(4));
+            Assertions.assertTrue(grid.getState(9).isFoundTarget());
+            Assertions.assertEquals(10, grid.getHiddenNumber(4));
+
+            grid.reset();
+            Assertions.assertEquals(BoxGridPanel.VisualState.NORMAL, grid.getState(9));
+            Assertions.assertEquals(-1, grid.getHiddenNumber(4));
+        });
+    }
+
+    @Test
+    public void testBackgroundIsAGradient() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            var grid = new BoxGridPanel(4);
+            grid.setBackground(Color.WHITE);
+            grid.setSize(grid.getPreferredSize());
+            var image = new BufferedImage(grid.getWidth(), grid.getHeight(), BufferedImage.TYPE_INT_RGB);
+            var g = image.createGraphics();
+            grid.paint(g);
+            g.dispose();
+
+            // The padding above and below the boxes
+            Assertions.assertEquals(Color.WHITE.getRGB(), image.getRGB(0, 0));
+            Assertions.assertNotEquals(Color.WHITE.getRGB(), image.getRGB(0, grid.getHeight() - 1));
+        });
+    }
+}
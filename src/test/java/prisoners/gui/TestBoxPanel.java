@@ -10,50 +10,6 @@ import javax.swing.*;
  */
 public class TestBoxPanel {
 
-    @Test
-    public void testModernBoxPanelCreation() {
-        var boxPanel = new ModernBoxPanel(1);
-        Assertions.assertEquals(1, boxPanel.getBoxNumber());
-        Assertions.assertEquals(-1, boxPanel.getHiddenNumber());
-        Assertions.assertEquals(ModernBoxPanel.VisualState.NORMAL, boxPanel.getState());
-    }
-
-    @Test
-    public void testSetHiddenNumber() {
-        var boxPanel = new ModernBoxPanel(5);
-        boxPanel.setHiddenNumber(42);
-        Assertions.assertEquals(42, boxPanel.getHiddenNumber());
-    }
-
-    @Test
-    public void testModernVisualStateTransitions() {
-        var boxPanel = new ModernBoxPanel(10);
-        
-        // Test state changes using modern assertions
-        boxPanel.setFoundTarget(true);
-        Assertions.assertTrue(boxPanel.getState().isFoundTarget());
-        
-        boxPanel.setInPath(true);
-        Assertions.assertTrue(boxPanel.getState().isInPath());
-        Assertions.assertTrue(boxPanel.getState().isFoundTarget()); // Should remain true
-        
-        boxPanel.clearPath();
-        Assertions.assertFalse(boxPanel.getState().isInPath());
-        Assertions.assertTrue(boxPanel.getState().isFoundTarget()); // Should remain true
-    }
-
-    @Test
-    public void testReset() {
-        var boxPanel = new ModernBoxPanel(10);
-        boxPanel.setHiddenNumber(25);
-        boxPanel.setFoundTarget(true);
-        
-        boxPanel.reset();
-        
-        Assertions.assertEquals(-1, boxPanel.getHiddenNumber());
-        Assertions.assertEquals(ModernBoxPanel.VisualState.NORMAL, boxPanel.getState());
-    }
-    
     @Test
     public void testModernVisualizationAppInstantiation() {
         // Test enhanced for modern Java stable features
@@ -73,9 +29,9 @@ public class TestBoxPanel {
     @Test
     public void testModernVisualStateRecord() {
         // Test the modern record implementation
-        var normalState = ModernBoxPanel.VisualState.NORMAL;
-        var activeState = new ModernBoxPanel.VisualState(true, false, false);
-        var successState = new ModernBoxPanel.VisualState(false, false, true);
+        var normalState = BoxGridPanel.VisualState.NORMAL;
+        var activeState = new BoxGridPanel.VisualState(true, false, false);
+        var successState = new BoxGridPanel.VisualState(false, false, true);
         
         // Test record equality and properties
         Assertions.assertFalse(normalState.isCurrentlyOpened());
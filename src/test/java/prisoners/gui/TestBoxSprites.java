@@ -0,0 +1,46 @@
+package prisoners.gui;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the pre-rendered box cache.
+ */
+public class TestBoxSprites {
+
+    @Test
+    public void testSheetsAreKeptPerSizeAndScale() {
+        var sprites = new BoxSprites(2);
+        var target = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+        var g2d = target.createGraphics();
+
+        sprites.draw(g2d, BoxSprites.NORMAL, false, 10, 10, 70, 70);
+        sprites.draw(g2d, BoxSprites.SUCCESS, true, 100, 10, 70, 70);
+        Assertions.assertEquals(1, sprites.sheetCount());
+
+        g2d.scale(2, 2); // a HiDPI screen
+        sprites.draw(g2d, BoxSprites.NORMAL, false, 10, 10, 70, 70);
+        Assertions.assertEquals(2, sprites.sheetCount());
+
+        sprites.draw(g2d, BoxSprites.NORMAL, false, 10, 10, 77, 77); // evicts the least recently used
+        Assertions.assertEquals(2, sprites.sheetCount());
+
+        sprites.clear();
+        Assertions.assertEquals(0, sprites.sheetCount());
+        g2d.dispose();
+    }
+
+    @Test
+    public void testSpriteCoversTheBox() {
+        var sprites = new BoxSprites(1);
+        var target = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        var g2d = target.createGraphics();
+        sprites.draw(g2d, BoxSprites.SUCCESS, false, 10, 10, 70, 70);
+        g2d.dispose();
+
+        Assertions.assertEquals(0, target.getRGB(2, 2) >>> 24); // outside the box and its shadow
+        Assertions.assertEquals(0xFF, target.getRGB(30, 60) >>> 24); // the front face
+    }
+}
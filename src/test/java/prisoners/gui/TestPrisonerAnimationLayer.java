@@ -0,0 +1,55 @@
+package prisoners.gui;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.*;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the prisoner overlay repaints only around the prisoner.
+ */
+public class TestPrisonerAnimationLayer {
+
+    @Test
+    public void testRepaintsOnlyThePrisonersBounds() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            var grid = new BoxGridPanel(100);
+            var layer = new PrisonerAnimationLayer();
+            var window = new JPanel(null);
+            window.setSize(1000, 1000);
+            grid.setBounds(0, 0, 1000, 1000);
+            layer.setBounds(0, 0, 1000, 1000);
+            window.add(layer);
+            window.add(grid);
+            layer.setBoxGrid(grid);
+
+            List<Rectangle> repaints = new ArrayList<>();
+            var previous = RepaintManager.currentManager(layer);
+            RepaintManager.setCurrentManager(new RepaintManager() {
+                @Override
+                public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+                    if (c == layer) {
+                        repaints.add(new Rectangle(x, y, w, h));
+                    }
+                }
+            });
+            try {
+                layer.moveTo(0, null); // the first move places the prisoner at once
+                var shown = layer.shownBounds();
+                Assertions.assertFalse(shown.isEmpty());
+                Assertions.assertEquals(List.of(shown), repaints);
+
+                repaints.clear();
+                layer.resetPosition();
+                Assertions.assertTrue(layer.shownBounds().isEmpty());
+                Assertions.assertEquals(List.of(shown), repaints);
+            } finally {
+                RepaintManager.setCurrentManager(previous);
+            }
+        });
+    }
+}
@@ -0,0 +1,161 @@
+package prisoners.jobs;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import prisoners.ResultCache;
+import prisoners.SimulationConfig;
+import prisoners.SimulationRunner;
+
+/**
+ * Tests for background simulation jobs and their scheduling.
+ */
+@Timeout(60)
+public class TestJobManager {
+
+    private static final SimulationConfig ENDLESS = SimulationConfig.classic(100, 1_000_000_000L);
+
+    @Test
+    public void testJobMatchesSynchronousRun() throws Exception {
+        var config = SimulationConfig.classic(50, 100_000).withSeed(5);
+        try (var jobs = new JobManager(3, 4, 10, new ResultCache(4))) {
+            var job = jobs.submit(config);
+
+            // Chunks run on several workers; the merged result is still the sequential one
+            Assertions.assertEquals(new SimulationRunner().run(config), job.result().get(30, TimeUnit.SECONDS));
+            Assertions.assertEquals(JobState.SUCCEEDED, job.state());
+            Assertions.assertEquals(config.trials(), job.progress().trials());
+            Assertions.assertEquals(job, jobs.get(job.id()).orElseThrow());
+        }
+    }
+
+    @Test
+    public void testCancelStopsRunningJob() throws Exception {
+        try (var jobs = new JobManager(1, 4, 10, null)) {
+            var job = jobs.submit(ENDLESS);
+            while (job.progress().trials() == 0) {
+                Thread.sleep(5);
+            }
+
+            Assertions.assertTrue(jobs.cancel(job.id()).orElseThrow().isCancelled());
+            Assertions.assertThrows(CancellationException.class, () -> job.result().join());
+
+            // The only worker thread is released after the in-flight chunk
+            var next = jobs.submit(SimulationConfig.classic(10, 100).withSeed(1));
+            Assertions.assertEquals(100, next.result().get(30, TimeUnit.SECONDS).trials());
+            Assertions.assertTrue(job.progress().trials() < ENDLESS.trials());
+        }
+    }
+
+    @Test
+    public void testTooManyActiveJobsAreRejected() {
+        try (var jobs = new JobManager(1, 2, 10, null)) {
+            jobs.submit(ENDLESS);
+            var second = jobs.submit(ENDLESS);
+
+            Assertions.assertThrows(RejectedExecutionException.class, () -> jobs.submit(ENDLESS));
+
+            // Cancelling a job frees its slot
+            jobs.cancel(second.id());
+            Assertions.assertFalse(jobs.submit(ENDLESS).state().isTerminal());
+        }
+    }
+
+    @Test
+    public void testHighPriorityOvertakesBulkJob() throws Exception {
+        try (var jobs = new JobManager(1, 4, 10, null)) {
+            var bulk = jobs.submit(ENDLESS, JobOptions.of(Priority.LOW));
+            while (bulk.progress().trials() == 0) {
+                Thread.sleep(5);
+            }
+            var interactive = jobs.submit(SimulationConfig.classic(100, 50_000), JobOptions.of(Priority.HIGH));
+
+            Assertions.assertEquals(50_000, interactive.result().get(30, TimeUnit.SECONDS).trials());
+            Assertions.assertEquals(JobState.RUNNING, bulk.state());
+        }
+    }
+
+    @Test
+    public void testWeightsShareWorkers() throws Exception {
+        try (var jobs = new JobManager(1, 4, 10, null)) {
+            var light = jobs.submit(ENDLESS);
+            var heavy = jobs.submit(ENDLESS, JobOptions.DEFAULT.withWeight(3));
+            while (light.progress().trials() < 8 * FairScheduler.chunkTrials(ENDLESS)) {
+                Thread.sleep(10);
+            }
+
+            double ratio = (double) heavy.progress().trials() / light.progress().trials();
+            Assertions.assertEquals(3.0, ratio, 0.5);
+        }
+    }
+
+    @Test
+    public void testDeadlineFailsJob() {
+        try (var jobs = new JobManager(1, 4, 10, null)) {
+            var job = jobs.submit(ENDLESS, JobOptions.DEFAULT.withTimeout(Duration.ofMillis(200)));
+
+            var exception = Assertions.assertThrows(CompletionException.class, () -> job.result().join());
+            Assertions.assertInstanceOf(TimeoutException.class, exception.getCause());
+            Assertions.assertEquals(JobState.FAILED, job.state());
+        }
+    }
+
+    @Test
+    public void testOversizedTimeoutKeepsSlotFree() throws Exception {
+        try (var jobs = new JobManager(1, 1, 10, null)) {
+            // Seconds as in ?timeout=9999999999999: the nanoTime deadline would overflow
+            Assertions.assertThrows(IllegalArgumentException.class,
+                () -> jobs.submit(ENDLESS, JobOptions.DEFAULT.withTimeout(Duration.ofSeconds(9_999_999_999_999L))));
+            Assertions.assertThrows(IllegalArgumentException.class,
+                () -> jobs.submit(ENDLESS, JobOptions.DEFAULT.withTimeout(JobOptions.MAX_TIMEOUT.plusNanos(1))));
+
+            var longest = jobs.submit(ENDLESS, JobOptions.DEFAULT.withTimeout(JobOptions.MAX_TIMEOUT));
+            Assertions.assertFalse(longest.state().isTerminal());
+            jobs.cancel(longest.id());
+
+            // The only slot is still free for a valid job
+            var next = jobs.submit(SimulationConfig.classic(10, 100).withSeed(1));
+            Assertions.assertEquals(100, next.result().get(30, TimeUnit.SECONDS).trials());
+        }
+    }
+
+    @Test
+    public void testChunksAreSizedByBoxOpenings() {
+        Assertions.assertEquals(FairScheduler.CHUNK_WORK / (100 * 50), FairScheduler.chunkTrials(ENDLESS));
+        // A trial of 10,000 prisoners opens up to 50 million boxes: one per chunk
+        Assertions.assertEquals(1, FairScheduler.chunkTrials(SimulationConfig.classic(10_000, 1_000)));
+    }
+
+    @Test
+    public void testCancelStopsChunkMidway() throws Exception {
+        var firstTrial = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var jobs = new JobManager(1, 4, 10, null)) {
+            var job = jobs.submit(ENDLESS, JobOptions.DEFAULT, (experiment, success) -> {
+                firstTrial.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            firstTrial.await();
+            jobs.cancel(job.id());
+            release.countDown();
+
+            // The chunk stops after the trial in flight instead of running its thousands of trials
+            var next = jobs.submit(SimulationConfig.classic(10, 100).withSeed(1));
+            Assertions.assertEquals(100, next.result().get(30, TimeUnit.SECONDS).trials());
+            Assertions.assertEquals(1, job.progress().trials());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package prisoners.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the Prometheus text exposition.
+ */
+public class TestPrometheusExporter {
+
+    @Test
+    public void testScrapeContainsMetricFamilies() {
+        var exporter = new PrometheusExporter();
+        exporter.registerGauge("prisoners_test_queue", "A test gauge.", () -> 3);
+        DeliveryMetrics.get().recordStepLatency(2_000_000);
+
+        var text = exporter.scrape();
+
+        Assertions.assertTrue(text.contains("# TYPE prisoners_trials_total counter"));
+        Assertions.assertTrue(text.contains("# TYPE prisoners_step_delivery_seconds histogram"));
+        Assertions.assertTrue(text.contains("prisoners_step_delivery_seconds_bucket{le=\"+Inf\"}"));
+        Assertions.assertTrue(text.contains("prisoners_test_queue 3\n"));
+        // Every sample line is "name[{labels}] value"
+        text.lines()
+            .filter(line -> !line.startsWith("#"))
+            .forEach(line -> Assertions.assertTrue(line.matches("[a-z_]+(\\{le=\"[^\"]+\"\\})? [0-9.E+-]+"), line));
+    }
+}
@@ -0,0 +1,71 @@
+package prisoners.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import prisoners.SimulationConfig;
+import prisoners.SimulationRunner;
+
+/**
+ * Tests for the JMX simulation metrics and the latency histogram behind them.
+ */
+public class TestSimulationMetrics {
+
+    @Test
+    public void testHistogramQuantiles() {
+        var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        Assertions.assertEquals(1000, histogram.count());
+        // Quantiles are bucket upper bounds, accurate to about 25%
+        Assertions.assertEquals(500_000, histogram.quantile(0.50), 125_000);
+        Assertions.assertEquals(990_000, histogram.quantile(0.99), 250_000);
+        Assertions.assertEquals(1000, histogram.countAtOrBelow(Long.MAX_VALUE / 4));
+        Assertions.assertEquals(0, histogram.countAtOrBelow(500));
+    }
+
+    @Test
+    public void testEveryValueFallsInsideItsBucket() {
+        for (long value = 0; value < 100_000; value += 7) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            Assertions.assertTrue(LatencyHistogram.upperBound(bucket) >= value);
+            if (bucket > 0) {
+                Assertions.assertTrue(LatencyHistogram.upperBound(bucket - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testMBeanReportsRunnerTrials() throws Exception {
+        SimulationMetrics.register();
+        long before = SimulationMetrics.get().getTotalTrials();
+
+        new SimulationRunner().run(SimulationConfig.classic(10, 500).withSeed(1));
+
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var name = new ObjectName(SimulationMetrics.OBJECT_NAME);
+        Assertions.assertTrue((Long) server.getAttribute(name, "TotalTrials") >= before + 500);
+        Assertions.assertTrue((Long) server.getAttribute(name, "P99NanosPerTrial") > 0);
+        Assertions.assertTrue((Long) server.getAttribute(name, "P50NanosPerTrial")
+                <= (Long) server.getAttribute(name, "P99NanosPerTrial"));
+    }
+
+    @Test
+    public void testResetKeepsExportedHistogram() {
+        var metrics = SimulationMetrics.get();
+        metrics.trialStarted();
+        metrics.recordTrial(1_000, true);
+        long exported = metrics.trialLatency().count();
+
+        metrics.resetStatistics();
+
+        Assertions.assertEquals(exported, metrics.trialLatency().count());
+        Assertions.assertEquals(0, metrics.getP99NanosPerTrial());
+    }
+}